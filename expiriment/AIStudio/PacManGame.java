@@ -2,6 +2,8 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import javax.sound.sampled.*;
 import javax.swing.*;
 
@@ -55,7 +57,7 @@ class GamePanel extends JPanel implements ActionListener {
     private boolean vulnerable = false;
     private long vulnerableStartTime;
     private final int VULNERABLE_DURATION = 5000; // 5 seconds
-    private Clip munchSound, powerUpSound, deathSound;
+    private volatile Clip munchSound, powerUpSound, deathSound; // Null until loaded
 
     public GamePanel() {
         setPreferredSize(new Dimension(SCREEN_WIDTH, SCREEN_HEIGHT));
@@ -71,16 +73,30 @@ class GamePanel extends JPanel implements ActionListener {
         this.vulnerableStartTime = vulnerableStartTime;
     }
 
-    private void loadSounds() {
+    // Sounds load in parallel in the background so the constructor doesn't hold up the EDT;
+    // a sound that isn't loaded yet is simply not played
+    private CompletableFuture<Void> loadSounds() {
+        return CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> munchSound = loadClip("munch.wav")), // Replace with your sound file
+                CompletableFuture.runAsync(() -> powerUpSound = loadClip("powerup.wav")), // Replace with your sound file
+                CompletableFuture.runAsync(() -> deathSound = loadClip("death.wav"))); // Replace with your sound file
+    }
+
+    private static Clip loadClip(String fileName) {
         try {
-            munchSound = AudioSystem.getClip();
-            munchSound.open(AudioSystem.getAudioInputStream(new File("munch.wav"))); // Replace with your sound file
-            powerUpSound = AudioSystem.getClip();
-            powerUpSound.open(AudioSystem.getAudioInputStream(new File("powerup.wav"))); // Replace with your sound file
-            deathSound = AudioSystem.getClip();
-            deathSound.open(AudioSystem.getAudioInputStream(new File("death.wav"))); // Replace with your sound file
+            Clip clip = AudioSystem.getClip();
+            clip.open(AudioSystem.getAudioInputStream(new File(fileName)));
+            return clip;
         } catch (Exception e) {
             e.printStackTrace();
+            return null;
+        }
+    }
+
+    private void playSound(Clip clip) {
+        if (clip != null) {
+            clip.setFramePosition(0); // Rewind the sound
+            clip.start();
         }
     }
 
@@ -110,6 +126,10 @@ class GamePanel extends JPanel implements ActionListener {
             if (vulnerable && System.currentTimeMillis() - vulnerableStartTime > VULNERABLE_DURATION) {
                 vulnerable = false;
             }
+        } else {
+            // Nothing moves once the game is over and the final frame is already up, so stop repainting
+            timer.stop();
+            return;
         }
         repaint();
     }
@@ -118,8 +138,7 @@ class GamePanel extends JPanel implements ActionListener {
         if (!vulnerable) {
             if (pacMan.intersects(blinky) || pacMan.intersects(pinky) || pacMan.intersects(inky) || pacMan.intersects(clyde)) {
                 lives--;
-                deathSound.setFramePosition(0); // Rewind the sound
-                deathSound.start();
+                playSound(deathSound);
                 resetPositions();
                 if (lives <= 0) {
                     gameOver = true;
@@ -167,15 +186,13 @@ class GamePanel extends JPanel implements ActionListener {
         if (maze[pacManGridY][pacManGridX] == 0) { // Pellet
             score += 10;
             maze[pacManGridY][pacManGridX] = 2; // Mark as eaten
-            munchSound.setFramePosition(0); // Rewind the sound
-            munchSound.start();
+            playSound(munchSound);
         } else if (maze[pacManGridY][pacManGridX] == 3) { // Power Pellet
             score += 50;
             maze[pacManGridY][pacManGridX] = 2; // Mark as eaten
             vulnerable = true;
             vulnerableStartTime = System.currentTimeMillis();
-            powerUpSound.setFramePosition(0);
-            powerUpSound.start();
+            playSound(powerUpSound);
         }
 
         if (isGameWon()) {
@@ -329,8 +346,9 @@ class PacMan {
     public Rectangle getBounds() {
         return new Rectangle(x, y, GRID_SIZE, GRID_SIZE);
     }
+    // Same test as getBounds().intersects(ghost.getBounds()), without making two Rectangles every tick
     public boolean intersects(Ghost ghost) {
-        return getBounds().intersects(ghost.getBounds());
+        return Math.abs(x - ghost.getX()) < GRID_SIZE && Math.abs(y - ghost.getY()) < GRID_SIZE;
     }
 
     public void move(int[][] maze) {
@@ -697,31 +715,168 @@ class Ghost {
 
 }
 
+// Builds a random, left-right symmetric maze: corridors join junctions at odd (x, y), every junction is
+// reachable (checked with union-find), none is a dead end, and there is an open ghost house in the middle.
+// Cell values: 1 = wall, 0 = pellet, 2 = empty, 3 = power pellet.
 class MazeGenerator {
+    private static final Random random = new Random();
+
     public static int[][] generateMaze(int width, int height) {
+        int[][] maze;
+        do {
+            maze = carveMaze(width, height);
+        } while (!isConnected(maze));
+        return maze;
+    }
+
+    private static int[][] carveMaze(int width, int height) {
         int[][] maze = new int[height][width];
+        for (int[] row : maze) {
+            Arrays.fill(row, 1);
+        }
+        int[] parent = new int[width * height];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
 
-        // Fill with walls
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                maze[i][j] = 1;
+        // Junction columns: the odd ones on the left and their mirror images on the right
+        TreeSet<Integer> columnSet = new TreeSet<>();
+        for (int x = 1; x <= (width - 1) / 2; x += 2) {
+            columnSet.add(x);
+            columnSet.add(width - 1 - x);
+        }
+        Integer[] columns = columnSet.toArray(new Integer[0]);
+
+        // Candidate corridors on the left half (and across the middle), each as {x1, y1, x2, y2}
+        List<int[]> edges = new ArrayList<>();
+        for (int y = 1; y < height - 1; y += 2) {
+            for (int i = 0; i < columns.length; i++) {
+                int x = columns[i];
+                if (x > width - 1 - x) {
+                    break;
+                }
+                maze[y][x] = 0;
+                maze[y][width - 1 - x] = 0;
+                if (i + 1 < columns.length) {
+                    edges.add(new int[] {x, y, columns[i + 1], y});
+                }
+                if (y + 2 < height - 1) {
+                    edges.add(new int[] {x, y, x, y + 2});
+                }
             }
         }
 
-        // Set path and pellets
-        for (int i = 1; i < height - 1; i++) {
-            for (int j = 1; j < width - 1; j++) {
-                maze[i][j] = 0; // Path
+        // Ghost house: an open block in the middle whose corners sit on junctions
+        int houseLeft = (width / 2 - 3) | 1;
+        int houseTop = (height / 2 - 2) | 1;
+        for (int y = houseTop; y <= houseTop + 2; y++) {
+            for (int x = houseLeft; x <= width - 1 - houseLeft; x++) {
+                maze[y][x] = 2;
+                if (x > houseLeft) {
+                    union(parent, y * width + x, y * width + x - 1);
+                }
+                if (y > houseTop) {
+                    union(parent, y * width + x, (y - 1) * width + x);
+                }
+            }
+        }
 
+        // Kruskal: open corridors in random order whenever they join two separate pieces
+        Collections.shuffle(edges, random);
+        for (int[] edge : edges) {
+            if (find(parent, edge[1] * width + edge[0]) != find(parent, edge[3] * width + edge[2])) {
+                openCorridor(maze, parent, edge);
             }
         }
-                // Add power pellets in corners
-        maze[1][1] = 3; // Top-left
-        maze[1][width - 2] = 3; // Top-right
-        maze[height - 2][1] = 3; // Bottom-left
-        maze[height - 2][width - 2] = 3; // Bottom-right
-        // Example: Creating a simple path structure - This is a basic implementation
-        // and needs to be replaced with actual maze generation logic.
+
+        // That leaves a tree, which is all dead ends; open one more corridor at every junction that has one way out
+        for (int[] edge : edges) {
+            int[] ends = {edge[0], edge[1], edge[2], edge[3]};
+            for (int end = 0; end < 4; end += 2) {
+                if (openSides(maze, ends[end], ends[end + 1]) < 2 && !isOpen(maze, edge)) {
+                    openCorridor(maze, parent, edge);
+                }
+            }
+        }
+
+        // Power pellets near the corners
+        int bottom = height - 2 - (height % 2 == 0 ? 1 : 0) - 2;
+        maze[3][1] = 3;
+        maze[3][width - 2] = 3;
+        maze[bottom][1] = 3;
+        maze[bottom][width - 2] = 3;
         return maze;
     }
-}
\ No newline at end of file
+
+    private static void openCorridor(int[][] maze, int[] parent, int[] edge) {
+        int width = maze[0].length;
+        for (int y = edge[1]; y <= edge[3]; y++) {
+            for (int x = edge[0]; x <= edge[2]; x++) {
+                if (maze[y][x] == 1) {
+                    maze[y][x] = 0;
+                    maze[y][width - 1 - x] = 0;
+                }
+            }
+        }
+        union(parent, edge[1] * width + edge[0], edge[3] * width + edge[2]);
+        union(parent, edge[1] * width + width - 1 - edge[0], edge[3] * width + width - 1 - edge[2]);
+    }
+
+    private static boolean isOpen(int[][] maze, int[] edge) {
+        int x = edge[0] == edge[2] ? edge[0] : edge[0] + 1;
+        int y = edge[1] == edge[3] ? edge[1] : edge[1] + 1;
+        return maze[y][x] != 1;
+    }
+
+    private static int openSides(int[][] maze, int x, int y) {
+        int count = 0;
+        if (maze[y - 1][x] != 1) count++;
+        if (maze[y + 1][x] != 1) count++;
+        if (maze[y][x - 1] != 1) count++;
+        if (maze[y][x + 1] != 1) count++;
+        return count;
+    }
+
+    // Union-find over the open cells: true when they all form one piece with no dead ends
+    private static boolean isConnected(int[][] maze) {
+        int height = maze.length;
+        int width = maze[0].length;
+        int[] parent = new int[width * height];
+        int pieces = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                parent[y * width + x] = y * width + x;
+                if (maze[y][x] == 1) {
+                    continue;
+                }
+                if (openSides(maze, x, y) < 2) {
+                    return false;
+                }
+                pieces++;
+                if (maze[y - 1][x] != 1 && union(parent, y * width + x, (y - 1) * width + x)) {
+                    pieces--;
+                }
+                if (maze[y][x - 1] != 1 && union(parent, y * width + x, y * width + x - 1)) {
+                    pieces--;
+                }
+            }
+        }
+        return pieces == 1;
+    }
+
+    private static int find(int[] parent, int cell) {
+        while (parent[cell] != cell) {
+            parent[cell] = parent[parent[cell]];
+            cell = parent[cell];
+        }
+        return cell;
+    }
+
+    // Returns true if the two cells were in different pieces
+    private static boolean union(int[] parent, int a, int b) {
+        int rootA = find(parent, a);
+        int rootB = find(parent, b);
+        parent[rootA] = rootB;
+        return rootA != rootB;
+    }
+}
@@ -1,20 +1,87 @@
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
-import java.util.Timer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import javax.sound.sampled.*;
 import javax.swing.*;
+import pacman.Direction;
+import pacman.Game;
+import pacman.GameEvent;
+import pacman.Maze;
+import pacman.MazeGenerator;
+import pacman.PathOracleCache;
+import pacman.Recording;
+import pacman.ReplayPlayer;
+import pacman.audio.SoftwareMixer;
+import pacman.render.Camera;
+import pacman.render.DirtyRegion;
+import pacman.score.Leaderboard;
+import pacman.score.LeaderboardEntry;
+import pacman.render.WorldRenderer;
+import pacman.render.WorldSnapshot;
 
 // Main class that launches the game
 public class PacManGame {
+    private static final long LAUNCH_NANOS = System.nanoTime();
+    private static boolean firstFrameReported = false;
+    private static final String PATH_CACHE_DIRECTORY = "path_cache";
+    
+    // Usage: PacManGame [--replay <recording>] [--maze <width>x<height>]
+    // --maze plays on freshly generated mazes of that size instead of the standard one
     public static void main(String[] args) {
+        // Ghost path tables come from disk after the first run; this has to happen before Game loads
+        Maze.setPathOracleCache(new PathOracleCache(Paths.get(PATH_CACHE_DIRECTORY)));
+        
+        Recording replay = null;
+        MazeGenerator generator = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--replay")) {
+                try {
+                    replay = Recording.load(Paths.get(args[i + 1]));
+                    ReplayPlayer.requirePlayable(replay);
+                } catch (IOException | IllegalArgumentException e) {
+                    System.err.println("Error loading replay: " + e.getMessage());
+                    return;
+                }
+            } else if (args[i].equals("--maze")) {
+                String[] size = args[i + 1].split("x");
+                generator = new MazeGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+            }
+        }
+        
+        // Sounds decode in the background; the window doesn't wait for them
+        SoundManager.loadAsync().thenRun(() ->
+                System.out.printf("Sounds ready after %d ms%n", millisSinceLaunch()));
+        
+        Recording recording = replay;
+        MazeGenerator mazeGenerator = generator;
         SwingUtilities.invokeLater(() -> {
-            GameWindow gameWindow = new GameWindow();
+            GameWindow gameWindow = new GameWindow(recording, mazeGenerator);
             gameWindow.setVisible(true);
         });
     }
+    
+    // Called on the EDT after every paint; reports the time to first frame once
+    static void framePainted() {
+        if (!firstFrameReported) {
+            firstFrameReported = true;
+            System.out.printf("Time to first frame: %d ms%n", millisSinceLaunch());
+        }
+    }
+    
+    private static long millisSinceLaunch() {
+        return (System.nanoTime() - LAUNCH_NANOS) / 1_000_000;
+    }
 }
 
 // Game Window class
@@ -23,14 +90,14 @@ class GameWindow extends JFrame {
     private static final int WINDOW_WIDTH = 800;
     private static final int WINDOW_HEIGHT = 600;
     
-    public GameWindow() {
-        setTitle("Pac-Man");
+    public GameWindow(Recording replay, MazeGenerator mazeGenerator) {
+        setTitle(replay == null ? "Pac-Man" : "Pac-Man - Replay");
         setSize(WINDOW_WIDTH, WINDOW_HEIGHT);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(false);
         setLocationRelativeTo(null);
         
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(replay, mazeGenerator);
         add(gamePanel);
         
         addKeyListener(new KeyAdapter() {
@@ -48,31 +115,44 @@ class GameWindow extends JFrame {
 }
 
 // Game Panel where the game is rendered
-class GamePanel extends JPanel {
+class GamePanel extends JPanel implements GameView {
     // Game constants
-    private static final int GRID_WIDTH = 28;
-    private static final int GRID_HEIGHT = 31;
     private static final int CELL_SIZE = 20;
-    private static final int PANEL_WIDTH = GRID_WIDTH * CELL_SIZE;
-    private static final int PANEL_HEIGHT = GRID_HEIGHT * CELL_SIZE;
+    // The view fits the standard maze; bigger mazes scroll underneath it
+    static final int VIEW_COLUMNS = Game.GRID_WIDTH;
+    static final int VIEW_ROWS = Game.GRID_HEIGHT;
+    private static final int PANEL_WIDTH = VIEW_COLUMNS * CELL_SIZE;
+    private static final int PANEL_HEIGHT = VIEW_ROWS * CELL_SIZE;
+    private static final int HUD_HEIGHT = 30; // Strip at the bottom holding score, lives and high score
+    private static final String REPLAY_DIRECTORY = "replays";
     
     // Game objects
     private GameEngine gameEngine;
-    private PacMan pacMan;
-    private List<Ghost> ghosts;
-    private Maze maze;
-    private int score = 0;
-    private int lives = 3;
-    private boolean gameOver = false;
-    private boolean gameWon = false;
     private boolean paused = false;
     private HighScoreManager highScoreManager;
+    private final Recording replay; // Played back instead of taking input, or null
+    private final MazeGenerator mazeGenerator; // Makes a new maze for every game, or null for the standard one
+    private WorldRenderer renderer = new WorldRenderer();
+    private final Camera camera = new Camera(PANEL_WIDTH, PANEL_HEIGHT);
+    
+    // What the panel shows, pinned for the whole frame so every clipped repaint draws the same tick
+    private WorldSnapshot frameSnapshot;
+    private float frameAlpha;
+    private final DirtyRegion dirtyRegion = new DirtyRegion(VIEW_COLUMNS, VIEW_ROWS);
+    private final AtomicBoolean framePending = new AtomicBoolean(false);
+    private final Rectangle dirtyBounds = new Rectangle();
     
     // Menu items
     private Rectangle resumeButton;
     private Rectangle restartButton;
     
     public GamePanel() {
+        this(null, null);
+    }
+    
+    public GamePanel(Recording replay, MazeGenerator mazeGenerator) {
+        this.replay = replay;
+        this.mazeGenerator = mazeGenerator;
         setPreferredSize(new Dimension(PANEL_WIDTH, PANEL_HEIGHT));
         setBackground(Color.BLACK);
         setFocusable(true);
@@ -92,9 +172,11 @@ class GamePanel extends JPanel {
                     if (resumeButton.contains(p)) {
                         paused = false;
                         gameEngine.resumeGame();
+                        repaintAll();
                     } else if (restartButton.contains(p)) {
                         initializeGame();
                         paused = false;
+                        repaintAll();
                     }
                 }
             }
@@ -102,23 +184,17 @@ class GamePanel extends JPanel {
     }
     
     public void initializeGame() {
-        maze = new Maze(GRID_WIDTH, GRID_HEIGHT);
-        pacMan = new PacMan(14, 23, maze);
-        
-        ghosts = new ArrayList<>();
-        // Initialize ghosts with different colors, starting positions, and behaviors
-        ghosts.add(new Ghost(13, 14, Color.RED, Ghost.GhostType.BLINKY, maze, pacMan)); // Blinky
-        ghosts.add(new Ghost(14, 14, Color.PINK, Ghost.GhostType.PINKY, maze, pacMan)); // Pinky
-        ghosts.add(new Ghost(13, 15, Color.CYAN, Ghost.GhostType.INKY, maze, pacMan)); // Inky
-        ghosts.add(new Ghost(14, 15, Color.ORANGE, Ghost.GhostType.CLYDE, maze, pacMan)); // Clyde
-        
-        gameEngine = new GameEngine(this, pacMan, ghosts, maze);
+        if (replay != null) {
+            gameEngine = new GameEngine(this, new ReplayPlayer(replay, Game.newStandardMaze()), Game.TICKS_PER_SECOND);
+        } else if (mazeGenerator != null) {
+            long seed = new Random().nextLong();
+            gameEngine = new GameEngine(this, new Game(mazeGenerator.generate(seed), seed), Game.TICKS_PER_SECOND);
+        } else {
+            gameEngine = new GameEngine(this, new Game(), Game.TICKS_PER_SECOND);
+        }
+        frameSnapshot = null;
+        dirtyRegion.invalidate();
         gameEngine.startGame();
-        
-        score = 0;
-        lives = 3;
-        gameOver = false;
-        gameWon = false;
     }
     
     public void handleKeyPress(KeyEvent e) {
@@ -133,26 +209,28 @@ class GamePanel extends JPanel {
                 paused = true;
                 gameEngine.pauseGame();
             }
+            repaintAll();
             return;
         }
         
         // Skip other inputs if game is paused or over
-        if (paused || gameOver || gameWon) {
+        if (paused || gameEngine.isFinished()) {
             return;
         }
         
+        // Input is handed to the game loop, which applies it on its next tick
         switch (keyCode) {
             case KeyEvent.VK_UP:
-                pacMan.setNextDirection(Direction.UP);
+                gameEngine.setInput(Direction.UP);
                 break;
             case KeyEvent.VK_DOWN:
-                pacMan.setNextDirection(Direction.DOWN);
+                gameEngine.setInput(Direction.DOWN);
                 break;
             case KeyEvent.VK_LEFT:
-                pacMan.setNextDirection(Direction.LEFT);
+                gameEngine.setInput(Direction.LEFT);
                 break;
             case KeyEvent.VK_RIGHT:
-                pacMan.setNextDirection(Direction.RIGHT);
+                gameEngine.setInput(Direction.RIGHT);
                 break;
         }
     }
@@ -161,36 +239,63 @@ class GamePanel extends JPanel {
         // Can be used for more sophisticated controls
     }
     
-    public void updateScore(int points) {
-        score += points;
-        // Check if all pellets are eaten
-        if (maze.getRemainingPellets() == 0) {
-            gameWon = true;
-            gameEngine.pauseGame();
-            highScoreManager.checkAndSaveHighScore(score);
-            SoundManager.playSound(SoundEffect.WIN);
+    @Override
+    public int getHighScore() {
+        return highScoreManager.getHighScore();
+    }
+    
+    @Override
+    public void gameEnded(Game game, Recording recording) {
+        highScoreManager.recordGame(game);
+        
+        // Keep the inputs as well, so the game can be watched again with --replay. A recording only
+        // holds the seed, so that works for games on the standard maze.
+        if (mazeGenerator != null) {
+            return;
         }
+        Path file = Paths.get(REPLAY_DIRECTORY, "game-" + game.getSeed() + ".pmr");
+        CompletableFuture.runAsync(() -> {
+            try {
+                recording.save(file);
+            } catch (IOException e) {
+                System.err.println("Error saving replay: " + e.getMessage());
+            }
+        });
     }
     
-    public void loseLife() {
-        lives--;
-        if (lives <= 0) {
-            gameOver = true;
-            gameEngine.pauseGame();
-            highScoreManager.checkAndSaveHighScore(score);
-            SoundManager.playSound(SoundEffect.GAME_OVER);
-        } else {
-            resetPositions();
-            SoundManager.playSound(SoundEffect.LOSE_LIFE);
+    // At most one frame is queued on the EDT at a time
+    @Override
+    public void requestFrame() {
+        if (framePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::paintFrame);
         }
     }
     
-    private void resetPositions() {
-        pacMan.reset(14, 23);
-        ghosts.get(0).reset(13, 14); // Blinky
-        ghosts.get(1).reset(14, 14); // Pinky
-        ghosts.get(2).reset(13, 15); // Inky
-        ghosts.get(3).reset(14, 15); // Clyde
+    // Repaints only the cells that changed since the last frame. Each run of cells is painted
+    // on its own, since repaint() would merge them into one rectangle spanning all of them.
+    private void paintFrame() {
+        framePending.set(false);
+        frameSnapshot = gameEngine.getSnapshot();
+        frameAlpha = gameEngine.getRenderAlpha();
+        camera.follow(frameSnapshot, frameAlpha, CELL_SIZE);
+        dirtyRegion.update(frameSnapshot, camera, CELL_SIZE);
+        
+        if (paused || dirtyRegion.isFullRepaint()) {
+            repaint();
+            return;
+        }
+        for (int i = 0; i < dirtyRegion.getRunCount(); i++) {
+            paintImmediately(dirtyRegion.getRun(i, CELL_SIZE, dirtyBounds));
+        }
+        if (dirtyRegion.isHudChanged()) {
+            paintImmediately(0, PANEL_HEIGHT - HUD_HEIGHT, PANEL_WIDTH, HUD_HEIGHT);
+        }
+    }
+    
+    // For overlays like the pause menu, which cover more than the cells that changed
+    private void repaintAll() {
+        dirtyRegion.invalidate();
+        repaint();
     }
     
     @Override
@@ -201,37 +306,37 @@ class GamePanel extends JPanel {
         // Enable anti-aliasing for smoother graphics
         g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
         
-        // Draw the maze
-        maze.draw(g2d, CELL_SIZE);
-        
-        // Draw Pac-Man
-        pacMan.draw(g2d, CELL_SIZE);
-        
-        // Draw ghosts
-        for (Ghost ghost : ghosts) {
-            ghost.draw(g2d, CELL_SIZE);
+        // Only published snapshots are read here, never the live game objects
+        if (frameSnapshot == null) {
+            frameSnapshot = gameEngine.getSnapshot();
+            frameAlpha = gameEngine.getRenderAlpha();
+            camera.follow(frameSnapshot, frameAlpha, CELL_SIZE);
         }
+        WorldSnapshot snapshot = frameSnapshot;
+        
+        // Draw the part of the maze in view, Pac-Man and ghosts, characters between their last two logic positions
+        renderer.draw(g2d, snapshot, CELL_SIZE, frameAlpha, camera);
         
         // Draw score
         g2d.setColor(Color.WHITE);
         g2d.setFont(new Font("Arial", Font.BOLD, 16));
-        g2d.drawString("Score: " + score, 20, PANEL_HEIGHT - 10);
+        g2d.drawString("Score: " + snapshot.score, 20, PANEL_HEIGHT - 10);
         
         // Draw lives
-        for (int i = 0; i < lives; i++) {
+        for (int i = 0; i < snapshot.lives; i++) {
             g2d.setColor(Color.YELLOW);
             g2d.fillArc(PANEL_WIDTH - 30 - (i * 25), PANEL_HEIGHT - 20, 20, 20, 30, 300);
         }
         
         // Draw high score
         g2d.setColor(Color.WHITE);
-        g2d.drawString("High Score: " + highScoreManager.getHighScore(), PANEL_WIDTH / 2 - 60, PANEL_HEIGHT - 10);
+        g2d.drawString("High Score: " + snapshot.highScore, PANEL_WIDTH / 2 - 60, PANEL_HEIGHT - 10);
         
         // Draw game over or win message
-        if (gameOver) {
+        if (snapshot.gameOver) {
             drawCenteredMessage(g2d, "GAME OVER", Color.RED);
             drawCenteredMessage(g2d, "Press ESCAPE to restart", Color.WHITE, 30);
-        } else if (gameWon) {
+        } else if (snapshot.gameWon) {
             drawCenteredMessage(g2d, "YOU WIN!", Color.GREEN);
             drawCenteredMessage(g2d, "Press ESCAPE to restart", Color.WHITE, 30);
         }
@@ -240,6 +345,8 @@ class GamePanel extends JPanel {
         if (paused) {
             drawPauseMenu(g2d);
         }
+        
+        PacManGame.framePainted();
     }
     
     private void drawCenteredMessage(Graphics2D g2d, String message, Color color) {
@@ -280,904 +387,350 @@ class GamePanel extends JPanel {
     }
 }
 
-// Direction enum for movement
-enum Direction {
-    UP, DOWN, LEFT, RIGHT, NONE
-}
-
-// Pac-Man class
-class PacMan {
-    private int x, y;             // Grid position
-    private int startX, startY;   // Starting position
-    private Direction currentDirection = Direction.NONE;
-    private Direction nextDirection = Direction.NONE;
-    private int mouthAngle = 0;
-    private boolean mouthOpening = true;
-    private Maze maze;
+// Snapshot buffer - triple buffering so the game loop and the renderer never share a snapshot.
+// The loop fills the back buffer and swaps it into the middle slot; the renderer swaps a fresh
+// middle slot into its front buffer. Each swap is one atomic exchange, so neither side locks.
+class SnapshotBuffer {
+    private static final int INDEX_MASK = 3;
+    private static final int FRESH = 4;
     
-    public PacMan(int x, int y, Maze maze) {
-        this.x = x;
-        this.y = y;
-        this.startX = x;
-        this.startY = y;
-        this.maze = maze;
-    }
+    private final WorldSnapshot[] snapshots = new WorldSnapshot[3];
+    private final AtomicInteger middle = new AtomicInteger(2); // Slot index, plus FRESH once published
+    private int back = 0;  // Owned by the game loop
+    private int front = 1; // Owned by the renderer
     
-    public void move() {
-        // Try to change direction if requested
-        if (nextDirection != currentDirection && canMove(nextDirection)) {
-            currentDirection = nextDirection;
-        }
-        
-        // Move in current direction if possible
-        if (canMove(currentDirection)) {
-            switch (currentDirection) {
-                case UP:
-                    y--;
-                    break;
-                case DOWN:
-                    y++;
-                    break;
-                case LEFT:
-                    x--;
-                    break;
-                case RIGHT:
-                    x++;
-                    break;
-                case NONE:
-                    break;
-            }
-            
-            // Check for pellet collision
-            if (maze.hasPellet(x, y)) {
-                maze.eatPellet(x, y);
-                SoundManager.playSound(SoundEffect.EAT_PELLET);
-            }
-            
-            // Check for power pellet collision
-            if (maze.hasPowerPellet(x, y)) {
-                maze.eatPowerPellet(x, y);
-                SoundManager.playSound(SoundEffect.EAT_POWER_PELLET);
-            }
-        }
-        
-        // Animate mouth
-        if (mouthOpening) {
-            mouthAngle += 5;
-            if (mouthAngle >= 45) {
-                mouthOpening = false;
-            }
-        } else {
-            mouthAngle -= 5;
-            if (mouthAngle <= 0) {
-                mouthOpening = true;
-            }
+    // Only the part of the maze within viewColumns x viewRows of Pac-Man is kept current
+    public SnapshotBuffer(int width, int height, int ghostCount, int viewColumns, int viewRows) {
+        for (int i = 0; i < snapshots.length; i++) {
+            snapshots[i] = new WorldSnapshot(width, height, ghostCount);
+            snapshots[i].setCaptureRange(viewColumns, viewRows);
         }
     }
     
-    private boolean canMove(Direction direction) {
-        int newX = x;
-        int newY = y;
-        
-        switch (direction) {
-            case UP:
-                newY--;
-                break;
-            case DOWN:
-                newY++;
-                break;
-            case LEFT:
-                newX--;
-                break;
-            case RIGHT:
-                newX++;
-                break;
-            case NONE:
-                return false;
-        }
-        
-        // Check if the new position is valid (not a wall)
-        return !maze.isWall(newX, newY);
+    // Game loop: the snapshot to fill before calling publish
+    public WorldSnapshot back() {
+        return snapshots[back];
     }
     
-    public void draw(Graphics2D g2d, int cellSize) {
-        int pixelX = x * cellSize;
-        int pixelY = y * cellSize;
-        
-        g2d.setColor(Color.YELLOW);
-        
-        // Calculate mouth angle based on direction
-        int startAngle = 0;
-        switch (currentDirection) {
-            case UP:
-                startAngle = 90 - mouthAngle;
-                break;
-            case DOWN:
-                startAngle = 270 - mouthAngle;
-                break;
-            case LEFT:
-                startAngle = 180 - mouthAngle;
-                break;
-            case RIGHT:
-                startAngle = 0 - mouthAngle;
-                break;
-            case NONE:
-                startAngle = 0 - mouthAngle;
-                break;
-        }
-        
-        // Draw Pac-Man with animated mouth
-        g2d.fillArc(pixelX, pixelY, cellSize, cellSize, startAngle, 360 - 2 * mouthAngle);
-    }
-    
-    public void setNextDirection(Direction direction) {
-        this.nextDirection = direction;
-    }
-    
-    public int getX() {
-        return x;
+    // Game loop: hand the filled back buffer over and take the old middle one to refill
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX_MASK;
     }
     
-    public int getY() {
-        return y;
-    }
-    
-    public void reset(int x, int y) {
-        this.x = x;
-        this.y = y;
-        this.currentDirection = Direction.NONE;
-        this.nextDirection = Direction.NONE;
-    }
-    
-    public Direction getDirection() {
-        return currentDirection;
+    // Renderer: the most recently published snapshot
+    public WorldSnapshot latest() {
+        if ((middle.get() & FRESH) != 0) {
+            front = middle.getAndSet(front) & INDEX_MASK;
+        }
+        return snapshots[front];
     }
 }
 
-// Ghost class
-class Ghost {
-    private int x, y;         // Grid position
-    private int startX, startY; // Starting position
-    private Color color;
-    private Direction currentDirection = Direction.UP;
-    private Maze maze;
-    private PacMan pacMan;
-    private GhostType type;
-    private boolean vulnerable = false;
-    private long vulnerableEndTime = 0;
-    private Random random = new Random();
-    
-    public enum GhostType {
-        BLINKY, PINKY, INKY, CLYDE
-    }
-    
-    public Ghost(int x, int y, Color color, GhostType type, Maze maze, PacMan pacMan) {
-        this.x = x;
-        this.y = y;
-        this.startX = x;
-        this.startY = y;
-        this.color = color;
-        this.type = type;
-        this.maze = maze;
-        this.pacMan = pacMan;
-    }
-    
-    public void move() {
-        // Check if vulnerable time has expired
-        if (vulnerable && System.currentTimeMillis() >= vulnerableEndTime) {
-            vulnerable = false;
-        }
-        
-        // Choose direction based on ghost type and vulnerability
-        Direction newDirection;
-        if (vulnerable) {
-            // When vulnerable, move randomly
-            newDirection = getRandomDirection();
-        } else {
-            // Use specific AI based on ghost type
-            switch (type) {
-                case BLINKY:
-                    // Blinky directly targets Pac-Man
-                    newDirection = moveTowardsPacMan();
-                    break;
-                case PINKY:
-                    // Pinky tries to move ahead of Pac-Man
-                    newDirection = moveAheadOfPacMan();
-                    break;
-                case INKY:
-                    // Inky uses a mix of strategies
-                    newDirection = moveInkyStyle();
-                    break;
-                case CLYDE:
-                    // Clyde moves randomly unless close to Pac-Man, then moves away
-                    newDirection = moveClydeStyle();
-                    break;
-                default:
-                    newDirection = getRandomDirection();
-            }
-        }
-        
-        // If we can move in the new direction, do so
-        if (canMove(newDirection)) {
-            currentDirection = newDirection;
-        } else if (!canMove(currentDirection)) {
-            // If we can't move in current direction, try a random one
-            Direction randomDir = getRandomDirection();
-            while (!canMove(randomDir)) {
-                randomDir = getRandomDirection();
-            }
-            currentDirection = randomDir;
-        }
-        
-        // Move in current direction
-        switch (currentDirection) {
-            case UP:
-                y--;
-                break;
-            case DOWN:
-                y++;
-                break;
-            case LEFT:
-                x--;
-                break;
-            case RIGHT:
-                x++;
-                break;
-        }
-    }
-    
-    private Direction moveTowardsPacMan() {
-        // Simple BFS implementation for Blinky
-        return findPathToPacMan();
-    }
-    
-    private Direction moveAheadOfPacMan() {
-        // Pinky tries to be ahead of Pac-Man by 4 tiles
-        int targetX = pacMan.getX();
-        int targetY = pacMan.getY();
-        
-        // Adjust target based on Pac-Man's direction
-        switch (pacMan.getDirection()) {
-            case UP:
-                targetY -= 4;
-                break;
-            case DOWN:
-                targetY += 4;
-                break;
-            case LEFT:
-                targetX -= 4;
-                break;
-            case RIGHT:
-                targetX += 4;
-                break;
-        }
-        
-        // Make sure target is within bounds
-        targetX = Math.max(0, Math.min(maze.getWidth() - 1, targetX));
-        targetY = Math.max(0, Math.min(maze.getHeight() - 1, targetY));
-        
-        return findPathToTarget(targetX, targetY);
-    }
-    
-    private Direction moveInkyStyle() {
-        // With 50% chance, chase directly; otherwise, move ahead like Pinky
-        if (random.nextBoolean()) {
-            return moveTowardsPacMan();
-        } else {
-            return moveAheadOfPacMan();
-        }
-    }
-    
-    private Direction moveClydeStyle() {
-        // Calculate Manhattan distance to Pac-Man
-        int distance = Math.abs(x - pacMan.getX()) + Math.abs(y - pacMan.getY());
-        
-        // If close to Pac-Man, move away; otherwise, move randomly
-        if (distance < 8) {
-            // Move away from Pac-Man
-            int dx = x - pacMan.getX();
-            int dy = y - pacMan.getY();
-            
-            if (Math.abs(dx) > Math.abs(dy)) {
-                // Move horizontally away
-                return dx > 0 ? Direction.RIGHT : Direction.LEFT;
-            } else {
-                // Move vertically away
-                return dy > 0 ? Direction.DOWN : Direction.UP;
-            }
-        } else {
-            // Move randomly
-            return getRandomDirection();
-        }
-    }
+// What the game loop needs from the window it runs in; the loop calls these from its own thread
+interface GameView {
+    // Called once when a game that was played, not replayed, has been won or lost
+    void gameEnded(Game game, Recording recording);
     
-    private Direction findPathToPacMan() {
-        return findPathToTarget(pacMan.getX(), pacMan.getY());
-    }
+    // Called once per frame
+    void requestFrame();
     
-    private Direction findPathToTarget(int targetX, int targetY) {
-        // BFS algorithm to find shortest path
-        Queue<Node> queue = new LinkedList<>();
-        boolean[][] visited = new boolean[maze.getWidth()][maze.getHeight()];
-        Node[][] parent = new Node[maze.getWidth()][maze.getHeight()];
-        
-        // Start from current position
-        queue.add(new Node(x, y, null, null));
-        visited[x][y] = true;
-        
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
-            
-            // If we've reached the target
-            if (current.x == targetX && current.y == targetY) {
-                // Reconstruct path
-                while (current.parent != null && current.parent.parent != null) {
-                    current = current.parent;
-                }
-                return current.direction;
-            }
-            
-            // Try all four directions
-            tryDirection(queue, visited, parent, current, Direction.UP);
-            tryDirection(queue, visited, parent, current, Direction.DOWN);
-            tryDirection(queue, visited, parent, current, Direction.LEFT);
-            tryDirection(queue, visited, parent, current, Direction.RIGHT);
-        }
-        
-        // If no path found, return random direction
-        return getRandomDirection();
-    }
-    
-    private void tryDirection(Queue<Node> queue, boolean[][] visited, Node[][] parent, 
-                             Node current, Direction direction) {
-        int newX = current.x;
-        int newY = current.y;
-        
-        switch (direction) {
-            case UP:
-                newY--;
-                break;
-            case DOWN:
-                newY++;
-                break;
-            case LEFT:
-                newX--;
-                break;
-            case RIGHT:
-                newX++;
-                break;
-        }
-        
-        // Check if valid move and not visited
-        if (newX >= 0 && newX < maze.getWidth() && newY >= 0 && newY < maze.getHeight() 
-            && !maze.isWall(newX, newY) && !visited[newX][newY]) {
-            
-            Direction newDirection = current.direction == null ? direction : current.direction;
-            Node newNode = new Node(newX, newY, current, newDirection);
-            
-            queue.add(newNode);
-            visited[newX][newY] = true;
-            parent[newX][newY] = newNode;
-        }
-    }
+    int getHighScore();
+}
+
+// Game Engine - runs the game loop, feeding keyboard input to the simulation and its events to sound
+class GameEngine {
+    private GameView view;
+    private Game game;
+    private final ReplayPlayer replayPlayer; // Source of input when replaying, otherwise null
+    private final Recording recording;       // Inputs of this game so far, or the one being replayed
+    private final AtomicReference<Direction> pendingInput = new AtomicReference<>(Direction.NONE);
+    private volatile Thread loopThread; // The loop runs while it is the current loop thread
+    private volatile float renderAlpha = 0;
+    private final long tickNanos;
+    private final SnapshotBuffer snapshots;
+    private static final int FPS = 60;
+    private static final long FRAME_NANOS = 1_000_000_000L / FPS;
+    private static final int MAX_TICKS_PER_FRAME = 5; // Drop time rather than spiral after a stall
+    private static final GameEvent[] EVENTS = GameEvent.values();
     
-    private Direction getRandomDirection() {
-        Direction[] directions = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
-        Direction oppositeDir = getOppositeDirection(currentDirection);
-        
-        Direction newDir;
-        do {
-            newDir = directions[random.nextInt(directions.length)];
-            // Avoid going backwards
-        } while (newDir == oppositeDir && canMove(currentDirection));
-        
-        return newDir;
+    public GameEngine(GameView view, Game game, int ticksPerSecond) {
+        this(view, game, null, ticksPerSecond);
     }
     
-    private Direction getOppositeDirection(Direction direction) {
-        switch (direction) {
-            case UP:
-                return Direction.DOWN;
-            case DOWN:
-                return Direction.UP;
-            case LEFT:
-                return Direction.RIGHT;
-            case RIGHT:
-                return Direction.LEFT;
-            default:
-                return Direction.NONE;
-        }
+    // Plays a recording back at normal speed; keyboard input is ignored
+    public GameEngine(GameView view, ReplayPlayer replayPlayer, int ticksPerSecond) {
+        this(view, replayPlayer.getGame(), replayPlayer, ticksPerSecond);
     }
     
-    private boolean canMove(Direction direction) {
-        int newX = x;
-        int newY = y;
-        
-        switch (direction) {
-            case UP:
-                newY--;
-                break;
-            case DOWN:
-                newY++;
-                break;
-            case LEFT:
-                newX--;
-                break;
-            case RIGHT:
-                newX++;
-                break;
-        }
-        
-        // Check if the new position is valid (not a wall)
-        return !maze.isWall(newX, newY);
+    private GameEngine(GameView view, Game game, ReplayPlayer replayPlayer, int ticksPerSecond) {
+        this.view = view;
+        this.game = game;
+        this.replayPlayer = replayPlayer;
+        this.recording = replayPlayer != null ? replayPlayer.getRecording() : new Recording(game.getSeed());
+        this.tickNanos = 1_000_000_000L / ticksPerSecond;
+        this.snapshots = new SnapshotBuffer(game.getMaze().getWidth(), game.getMaze().getHeight(),
+                game.getGhosts().size(), GamePanel.VIEW_COLUMNS, GamePanel.VIEW_ROWS);
     }
     
-    public void draw(Graphics2D g2d, int cellSize) {
-        int pixelX = x * cellSize;
-        int pixelY = y * cellSize;
-        
-        // Draw ghost body
-        if (vulnerable) {
-            // Blinking effect near end of vulnerability
-            if (vulnerableEndTime - System.currentTimeMillis() < 2000 && 
-                System.currentTimeMillis() % 300 < 150) {
-                g2d.setColor(Color.WHITE);
-            } else {
-                g2d.setColor(Color.BLUE);
-            }
-        } else {
-            g2d.setColor(color);
-        }
-        
-        // Ghost body (arc)
-        g2d.fillArc(pixelX, pixelY, cellSize, cellSize, 0, 180);
-        
-        // Ghost "skirt"
-        int skirtY = pixelY + cellSize / 2;
-        int skirtHeight = cellSize / 2;
-        int waveWidth = cellSize / 3;
-        
-        // Three waves at the bottom
-        g2d.fillRect(pixelX, skirtY, cellSize, skirtHeight);
-        
-        g2d.setColor(Color.BLACK);
-        
-        // Draw eyes
-        int eyeSize = cellSize / 4;
-        int leftEyeX = pixelX + cellSize / 4 - eyeSize / 2;
-        int rightEyeX = pixelX + 3 * cellSize / 4 - eyeSize / 2;
-        int eyeY = pixelY + cellSize / 3 - eyeSize / 2;
-        
-        g2d.setColor(Color.WHITE);
-        g2d.fillOval(leftEyeX, eyeY, eyeSize, eyeSize);
-        g2d.fillOval(rightEyeX, eyeY, eyeSize, eyeSize);
+    public void startGame() {
+        publishSnapshot();
         
-        // Draw pupils
-        int pupilSize = eyeSize / 2;
-        int leftPupilX = leftEyeX + eyeSize / 4;
-        int rightPupilX = rightEyeX + eyeSize / 4;
-        int pupilY = eyeY + eyeSize / 4;
+        Thread thread = new Thread(this::runLoop, "game-loop");
+        thread.setDaemon(true);
+        loopThread = thread;
+        thread.start();
         
-        g2d.setColor(Color.BLACK);
-        g2d.fillOval(leftPupilX, pupilY, pupilSize, pupilSize);
-        g2d.fillOval(rightPupilX, pupilY, pupilSize, pupilSize);
-    }
-    
-    public int getX() {
-        return x;
+        SoundManager.playSound(SoundEffect.GAME_START);
     }
     
-    public int getY() {
-        return y;
+    public void pauseGame() {
+        // Safe to call from the loop itself; it finishes the current tick and exits
+        loopThread = null;
     }
     
-    public void setVulnerable(boolean vulnerable, int durationMillis) {
-        this.vulnerable = vulnerable;
-        if (vulnerable) {
-            this.vulnerableEndTime = System.currentTimeMillis() + durationMillis;
+    // A finished game stays stopped; running it again would end it, and record it, a second time
+    public void resumeGame() {
+        if (loopThread == null && !isFinished()) {
+            startGame();
         }
     }
     
-    public boolean isVulnerable() {
-        return vulnerable;
+    // Direction to turn on the next tick; safe to call from the EDT
+    public void setInput(Direction direction) {
+        pendingInput.set(direction);
     }
     
-    public void reset(int x, int y) {
-        this.x = x;
-        this.y = y;
-        this.vulnerable = false;
-        this.currentDirection = Direction.UP;
+    public boolean isFinished() {
+        return replayPlayer != null ? replayPlayer.isFinished() : game.isFinished();
     }
     
-    // Inner class for BFS
-    private class Node {
-        int x, y;
-        Node parent;
-        Direction direction;
-        
-        Node(int x, int y, Node parent, Direction direction) {
-            this.x = x;
-            this.y = y;
-            this.parent = parent;
-            this.direction = direction;
-        }
-    }
-}
-
-// Maze class
-class Maze {
-    private int width;
-    private int height;
-    private boolean[][] walls;
-    private boolean[][] pellets;
-    private boolean[][] powerPellets;
-    private int remainingPellets;
-    
-    public Maze(int width, int height) {
-        this.width = width;
-        this.height = height;
-        this.walls = new boolean[width][height];
-        this.pellets = new boolean[width][height];
-        this.powerPellets = new boolean[width][height];
-        
-        initializeMaze();
+    // Latest published world state; only the renderer should call this
+    public WorldSnapshot getSnapshot() {
+        return snapshots.latest();
     }
     
-    private void initializeMaze() {
-        // Initialize with a standard Pac-Man maze layout
-        // 1 = Wall, 0 = Path, 2 = Power Pellet
-        int[][] mazeLayout = {
-            {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1},
-            {1,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,1},
-            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
-            {1,2,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,2,1},
-            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
-            {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
-            {1,0,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,0,1},
-            {1,0,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,0,1},
-            {1,0,0,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,0,0,1},
-            {1,1,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,1,1},
-            {1,1,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,1,1},
-            {1,1,1,1,1,1,0,1,1,0,0,0,0,0,0,0,0,0,0,1,1,0,1,1,1,1,1,1},
-            {1,1,1,1,1,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,1,1,1,1,1},
-            {0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0},
-            {1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1},
-            {1,1,1,1,1,1,0,1,1,0,0,0,0,0,0,0,0,0,0,1,1,0,1,1,1,1,1,1},
-            {1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1},
-            {1,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,1},
-            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
-            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
-            {1,2,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,2,1},
-            {1,1,1,0,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,0,1,1,1},
-            {1,1,1,0,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,0,1,1,1},
-            {1,0,0,0,0,0,0,1,1,0,0,0,0,1,0,0,0,0,0,1,1,0,0,0,0,0,0,1},
-            {1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1},
-            {1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1},
-            {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
-            {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1}
-        };
-        
-        remainingPellets = 0;
-        
-        // Convert the layout to our data structures
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (y < mazeLayout.length && x < mazeLayout[y].length) {
-                    walls[x][y] = mazeLayout[y][x] == 1;
-                    pellets[x][y] = mazeLayout[y][x] == 0;
-                    powerPellets[x][y] = mazeLayout[y][x] == 2;
-                    
-                    if (pellets[x][y]) {
-                        remainingPellets++;
-                    }
-                }
-            }
-        }
-        
-        // Remove pellets from ghost house and Pac-Man starting position
-        for (int x = 13; x <= 14; x++) {
-            for (int y = 14; y <= 15; y++) {
-                if (pellets[x][y]) {
-                    pellets[x][y] = false;
-                    remainingPellets--;
-                }
-            }
-        }
-        
-        // Remove pellet from Pac-Man's starting position
-        if (pellets[14][23]) {
-            pellets[14][23] = false;
-            remainingPellets--;
-        }
+    // How far the simulation is between the last tick and the next one, from 0 to 1
+    public float getRenderAlpha() {
+        return renderAlpha;
     }
     
-    public void draw(Graphics2D g2d, int cellSize) {
-        // Draw walls
-        g2d.setColor(Color.BLUE);
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (walls[x][y]) {
-                    g2d.fillRect(x * cellSize, y * cellSize, cellSize, cellSize);
-                }
-            }
-        }
-        
-        // Draw pellets
-        g2d.setColor(Color.WHITE);
-        int pelletSize = cellSize / 5;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (pellets[x][y]) {
-                    int pelletX = x * cellSize + (cellSize - pelletSize) / 2;
-                    int pelletY = y * cellSize + (cellSize - pelletSize) / 2;
-                    g2d.fillOval(pelletX, pelletY, pelletSize, pelletSize);
-                }
-            }
-        }
+    // Fixed logic timestep with an accumulator; rendering is requested once per frame in between
+    private void runLoop() {
+        Thread self = Thread.currentThread();
+        long previous = System.nanoTime();
+        long accumulator = 0;
         
-        // Draw power pellets
-        int powerPelletSize = cellSize / 2;
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                if (powerPellets[x][y]) {
-                    int pelletX = x * cellSize + (cellSize - powerPelletSize) / 2;
-                    int pelletY = y * cellSize + (cellSize - powerPelletSize) / 2;
-                    
-                    // Make power pellets blink
-                    if (System.currentTimeMillis() % 500 < 250) {
-                        g2d.fillOval(pelletX, pelletY, powerPelletSize, powerPelletSize);
-                    }
+        while (loopThread == self) {
+            long frameStart = System.nanoTime();
+            accumulator += frameStart - previous;
+            previous = frameStart;
+            
+            int ticks = 0;
+            while (accumulator >= tickNanos && loopThread == self) {
+                update();
+                publishSnapshot();
+                accumulator -= tickNanos;
+                if (++ticks == MAX_TICKS_PER_FRAME) {
+                    accumulator %= tickNanos;
+                    break;
                 }
             }
-        }
-    }
-    
-    public boolean isWall(int x, int y) {
-        // Check if coordinates are out of bounds
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            return true;
-        }
-        return walls[x][y];
-    }
-    
-    public boolean hasPellet(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            return false;
-        }
-        return pellets[x][y];
-    }
-    
-    public boolean hasPowerPellet(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            return false;
-        }
-        return powerPellets[x][y];
-    }
-    
-    public void eatPellet(int x, int y) {
-        if (hasPellet(x, y)) {
-            pellets[x][y] = false;
-            remainingPellets--;
-        }
-    }
-    
-    public void eatPowerPellet(int x, int y) {
-        if (hasPowerPellet(x, y)) {
-            powerPellets[x][y] = false;
-        }
-    }
-    
-    public int getWidth() {
-        return width;
-    }
-    
-    public int getHeight() {
-        return height;
-    }
-    
-    public int getRemainingPellets() {
-        return remainingPellets;
-    }
-}
-
-// Game Engine - handles game loop, collisions, and game logic
-class GameEngine {
-    private GamePanel gamePanel;
-    private PacMan pacMan;
-    private List<Ghost> ghosts;
-    private Maze maze;
-    private Timer gameTimer;
-    private static final int FPS = 60;
-    private static final int FRAME_DELAY = 1000 / FPS;
-    private static final int VULNERABLE_DURATION = 10000; // 10 seconds for vulnerable ghosts
-    
-    public GameEngine(GamePanel gamePanel, PacMan pacMan, List<Ghost> ghosts, Maze maze) {
-        this.gamePanel = gamePanel;
-        this.pacMan = pacMan;
-        this.ghosts = ghosts;
-        this.maze = maze;
-    }
-    
-    public void startGame() {
-        gameTimer = new Timer();
-        gameTimer.scheduleAtFixedRate(new TimerTask() {
-            @Override
-            public void run() {
-                update();
-                gamePanel.repaint();
+            
+            renderAlpha = (float) accumulator / tickNanos;
+            view.requestFrame();
+            
+            long sleepNanos = FRAME_NANOS - (System.nanoTime() - frameStart);
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(sleepNanos);
             }
-        }, 0, FRAME_DELAY);
-        
-        SoundManager.playSound(SoundEffect.GAME_START);
-    }
-    
-    public void pauseGame() {
-        if (gameTimer != null) {
-            gameTimer.cancel();
-            gameTimer = null;
-        }
-    }
-    
-    public void resumeGame() {
-        if (gameTimer == null) {
-            startGame();
         }
     }
     
     private void update() {
-        // Update Pac-Man
-        pacMan.move();
-        
-        // Check for pellet collection
-        if (maze.hasPellet(pacMan.getX(), pacMan.getY())) {
-            maze.eatPellet(pacMan.getX(), pacMan.getY());
-            gamePanel.updateScore(10);
-            SoundManager.playSound(SoundEffect.EAT_PELLET);
+        int events;
+        if (replayPlayer != null) {
+            events = replayPlayer.step();
+        } else {
+            Direction input = pendingInput.getAndSet(Direction.NONE);
+            events = game.step(input);
+            recording.record(game.getTick(), input);
         }
         
-        // Check for power pellet collection
-        if (maze.hasPowerPellet(pacMan.getX(), pacMan.getY())) {
-            maze.eatPowerPellet(pacMan.getX(), pacMan.getY());
-            gamePanel.updateScore(50);
-            makeGhostsVulnerable();
-            SoundManager.playSound(SoundEffect.EAT_POWER_PELLET);
+        for (GameEvent event : EVENTS) {
+            if (event.isIn(events)) {
+                SoundManager.playSound(SoundEffect.forEvent(event));
+            }
         }
         
-        // Update ghosts
-        for (Ghost ghost : ghosts) {
-            ghost.move();
-            
-            // Check for collision with Pac-Man
-            if (ghost.getX() == pacMan.getX() && ghost.getY() == pacMan.getY()) {
-                if (ghost.isVulnerable()) {
-                    // Eat the ghost
-                    ghost.reset(13 + (ghost.getX() % 2), 14 + (ghost.getY() % 2));
-                    ghost.setVulnerable(false, 0);
-                    gamePanel.updateScore(200);
-                    SoundManager.playSound(SoundEffect.EAT_GHOST);
-                } else {
-                    // Pac-Man loses a life
-                    gamePanel.loseLife();
-                    return;
-                }
+        if (isFinished()) {
+            pauseGame();
+            if (replayPlayer == null) {
+                view.gameEnded(game, recording);
             }
         }
     }
     
-    private void makeGhostsVulnerable() {
-        for (Ghost ghost : ghosts) {
-            ghost.setVulnerable(true, VULNERABLE_DURATION);
-        }
+    private void publishSnapshot() {
+        WorldSnapshot snapshot = snapshots.back();
+        snapshot.capture(game);
+        snapshot.highScore = view.getHighScore();
+        snapshots.publish();
     }
 }
 
 // Helper class to manage sound effects
 enum SoundEffect {
-    GAME_START("game_start.wav"),
-    EAT_PELLET("eat_pellet.wav"),
-    EAT_POWER_PELLET("eat_power_pellet.wav"),
-    EAT_GHOST("eat_ghost.wav"),
-    LOSE_LIFE("lose_life.wav"),
-    GAME_OVER("game_over.wav"),
-    WIN("win.wav");
+    GAME_START("game_start.wav", 1),
+    EAT_PELLET("eat_pellet.wav", 2),
+    EAT_POWER_PELLET("eat_power_pellet.wav", 1),
+    EAT_GHOST("eat_ghost.wav", 2),
+    LOSE_LIFE("lose_life.wav", 1),
+    GAME_OVER("game_over.wav", 1),
+    WIN("win.wav", 1);
     
     private final String fileName;
+    private final int maxVoices; // Copies that may overlap before the oldest one is restarted
     
-    SoundEffect(String fileName) {
+    SoundEffect(String fileName, int maxVoices) {
         this.fileName = fileName;
+        this.maxVoices = maxVoices;
     }
     
     public String getFileName() {
         return fileName;
     }
+    
+    public int getMaxVoices() {
+        return maxVoices;
+    }
+    
+    public static SoundEffect forEvent(GameEvent event) {
+        switch (event) {
+            case EAT_PELLET:
+                return EAT_PELLET;
+            case EAT_POWER_PELLET:
+                return EAT_POWER_PELLET;
+            case EAT_GHOST:
+                return EAT_GHOST;
+            case LOSE_LIFE:
+                return LOSE_LIFE;
+            case GAME_OVER:
+                return GAME_OVER;
+            default:
+                return WIN;
+        }
+    }
 }
 
+// Plays sound effects through one software mixer, so effects overlap instead of cutting each other off
 class SoundManager {
-    private static Map<SoundEffect, Clip> soundClips = new HashMap<>();
+    private static final int VOICES = 8;
+    private static final SoftwareMixer mixer = new SoftwareMixer(VOICES, SoundEffect.values().length);
+    private static CompletableFuture<Void> ready;
+    
+    // Starts the mixer and decodes all sound effects in parallel in the background. Effects play
+    // silently until their own decode finishes; the future completes once all of them have.
+    public static synchronized CompletableFuture<Void> loadAsync() {
+        if (ready == null) {
+            SoundEffect[] effects = SoundEffect.values();
+            int threads = Math.min(effects.length + 1, Runtime.getRuntime().availableProcessors());
+            ExecutorService loader = Executors.newFixedThreadPool(threads, task -> {
+                Thread thread = new Thread(task, "asset-loader");
+                thread.setDaemon(true);
+                return thread;
+            });
+            
+            // Opening the output line can take a while too, so it is one more background task
+            CompletableFuture<?>[] loads = new CompletableFuture<?>[effects.length + 1];
+            loads[0] = CompletableFuture.runAsync(mixer::start, loader);
+            for (int i = 0; i < effects.length; i++) {
+                SoundEffect effect = effects[i];
+                loads[i + 1] = CompletableFuture.runAsync(() -> loadEffect(effect), loader);
+            }
+            ready = CompletableFuture.allOf(loads).whenComplete((result, error) -> loader.shutdown());
+        }
+        return ready;
+    }
     
-    static {
-        // Pre-load all sound clips
-        for (SoundEffect effect : SoundEffect.values()) {
-            try {
-                // First try to load from file system
-                File soundFile = new File("sounds/" + effect.getFileName());
-                if (soundFile.exists()) {
-                    AudioInputStream audioStream = AudioSystem.getAudioInputStream(soundFile);
-                    Clip clip = AudioSystem.getClip();
-                    clip.open(audioStream);
-                    soundClips.put(effect, clip);
-                } else {
-                    // If file not found, try to load from resources
-                    InputStream inputStream = SoundManager.class.getResourceAsStream("/sounds/" + effect.getFileName());
-                    if (inputStream != null) {
-                        AudioInputStream audioStream = AudioSystem.getAudioInputStream(
-                                new BufferedInputStream(inputStream));
-                        Clip clip = AudioSystem.getClip();
-                        clip.open(audioStream);
-                        soundClips.put(effect, clip);
-                    }
+    private static void loadEffect(SoundEffect effect) {
+        try {
+            // First try to load from file system
+            File soundFile = new File("sounds/" + effect.getFileName());
+            AudioInputStream audioStream = null;
+            if (soundFile.exists()) {
+                audioStream = AudioSystem.getAudioInputStream(soundFile);
+            } else {
+                // If file not found, try to load from resources
+                InputStream inputStream = SoundManager.class.getResourceAsStream("/sounds/" + effect.getFileName());
+                if (inputStream != null) {
+                    audioStream = AudioSystem.getAudioInputStream(new BufferedInputStream(inputStream));
                 }
-            } catch (Exception e) {
-                System.err.println("Error loading sound: " + effect.getFileName());
-                // Don't crash the game if sound files are missing
             }
+            if (audioStream != null) {
+                mixer.load(effect.ordinal(), audioStream, effect.getMaxVoices());
+            }
+        } catch (Exception e) {
+            System.err.println("Error loading sound: " + effect.getFileName());
+            // Don't crash the game if sound files are missing
         }
     }
     
+    // Never blocks, so it is safe to call from the game loop
     public static void playSound(SoundEffect effect) {
-        Clip clip = soundClips.get(effect);
-        if (clip != null) {
-            clip.setFramePosition(0); // Rewind
-            clip.start();
-        }
+        mixer.play(effect.ordinal());
     }
 }
 
-// High Score manager
+// High Score manager - keeps the top games in a leaderboard file. Saving happens in the background,
+// so recording a game from the game loop never waits on the disk.
 class HighScoreManager {
-    private static final String HIGH_SCORE_FILE = "pacman_highscore.dat";
-    private int highScore = 0;
+    private static final String LEADERBOARD_FILE = "pacman_leaderboard.dat";
+    private static final String LEGACY_HIGH_SCORE_FILE = "pacman_highscore.dat"; // Single score from older versions
+    private static final int LEADERBOARD_SIZE = 10;
+    private static final int LEVEL = 1; // The game has one level so far
+    
+    private final Leaderboard leaderboard;
     
     public HighScoreManager() {
-        loadHighScore();
+        leaderboard = Leaderboard.open(Paths.get(LEADERBOARD_FILE), LEADERBOARD_SIZE);
+        if (leaderboard.isEmpty()) {
+            importLegacyHighScore();
+        }
+        
+        // Let queued saves finish when the window is closed
+        Runtime.getRuntime().addShutdownHook(new Thread(leaderboard::close, "leaderboard-shutdown"));
     }
     
-    private void loadHighScore() {
+    private void importLegacyHighScore() {
         try {
-            File file = new File(HIGH_SCORE_FILE);
+            File file = new File(LEGACY_HIGH_SCORE_FILE);
             if (file.exists()) {
                 BufferedReader reader = new BufferedReader(new FileReader(file));
                 String line = reader.readLine();
+                reader.close();
                 if (line != null) {
-                    highScore = Integer.parseInt(line);
+                    int score = Integer.parseInt(line.trim());
+                    leaderboard.submit(new LeaderboardEntry("-", score, LEVEL, 0, 0, file.lastModified()));
                 }
-                reader.close();
             }
         } catch (Exception e) {
             System.err.println("Error loading high score: " + e.getMessage());
         }
     }
     
-    private void saveHighScore() {
-        try {
-            BufferedWriter writer = new BufferedWriter(new FileWriter(HIGH_SCORE_FILE));
-            writer.write(String.valueOf(highScore));
-            writer.close();
-        } catch (Exception e) {
-            System.err.println("Error saving high score: " + e.getMessage());
-        }
+    public int getHighScore() {
+        return leaderboard.getHighScore();
     }
     
-    public int getHighScore() {
-        return highScore;
+    public List<LeaderboardEntry> getLeaderboard() {
+        return leaderboard.getEntries();
     }
     
-    public boolean checkAndSaveHighScore(int score) {
-        if (score > highScore) {
-            highScore = score;
-            saveHighScore();
-            return true;
-        }
-        return false;
+    // Returns whether the game made the leaderboard
+    public boolean recordGame(Game game) {
+        long durationMillis = game.getTick() * 1000 / Game.TICKS_PER_SECOND;
+        String name = System.getProperty("user.name", "Player");
+        return leaderboard.submit(new LeaderboardEntry(name, game.getScore(), LEVEL, durationMillis,
+                game.getSeed(), System.currentTimeMillis()));
     }
-}
\ No newline at end of file
+}
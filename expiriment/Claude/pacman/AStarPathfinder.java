@@ -0,0 +1,73 @@
+package pacman;
+
+import java.util.Arrays;
+
+// A* pathfinder - Manhattan heuristic that knows about wrapping tunnels
+class AStarPathfinder extends GridPathfinder {
+    private final CellHeap open;
+    private final int[] closed;      // Generation stamp for cells already expanded
+    private final int[] costs;       // Best known path length, valid where visited is current
+    private final byte[] firstSteps;
+    
+    public AStarPathfinder(Maze maze) {
+        this(maze, MAX_WINDOW);
+    }
+    
+    private AStarPathfinder(Maze maze, int window) {
+        super(maze, window);
+        int cells = width * height;
+        // A cell can be pushed once per improving neighbour; the heap grows if a wide window needs more
+        this.open = new CellHeap(Math.min(4 * cells, 4 * MAX_WINDOW * MAX_WINDOW) + 1);
+        this.closed = new int[cells];
+        this.costs = new int[cells];
+        this.firstSteps = new byte[cells];
+    }
+    
+    @Override
+    protected int search(int start, int target) {
+        open.clear();
+        visited[start] = generation;
+        costs[start] = 0;
+        firstSteps[start] = NO_STEP;
+        open.push(start, heuristic(start, target));
+        
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            if (closed[cell] == generation) {
+                continue; // Stale heap entry
+            }
+            if (cell == target) {
+                pathLength = costs[cell];
+                return firstSteps[cell];
+            }
+            closed[cell] = generation;
+            expandedNodes++;
+            
+            int cost = costs[cell] + 1;
+            for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                int next = neighbor(cell, d);
+                if (next < 0 || closed[next] == generation) {
+                    continue;
+                }
+                if (visited[next] == generation && costs[next] <= cost) {
+                    continue;
+                }
+                visited[next] = generation;
+                costs[next] = cost;
+                firstSteps[next] = firstSteps[cell] == NO_STEP ? (byte) d : firstSteps[cell];
+                open.push(next, cost + heuristic(next, target));
+            }
+        }
+        return NO_STEP;
+    }
+    
+    @Override
+    protected GridPathfinder withWindow(int window) {
+        return new AStarPathfinder(maze, window);
+    }
+    
+    @Override
+    protected void onGenerationReset() {
+        Arrays.fill(closed, 0);
+    }
+}
@@ -0,0 +1,107 @@
+package pacman;
+
+// Aggregate results of a batch of simulated games; partial reports from worker threads are merged at the end
+public class BatchReport {
+    private int games = 0;
+    private int wins = 0;
+    private long totalScore = 0;
+    private int minScore = Integer.MAX_VALUE;
+    private int maxScore = Integer.MIN_VALUE;
+    private long totalTicks = 0;
+    private long totalPelletsEaten = 0;
+    private long wallNanos = 0;
+    private int parallelism = 1;
+    
+    public void record(Game game) {
+        games++;
+        if (game.isGameWon()) {
+            wins++;
+        }
+        int score = game.getScore();
+        totalScore += score;
+        minScore = Math.min(minScore, score);
+        maxScore = Math.max(maxScore, score);
+        totalTicks += game.getTick();
+        totalPelletsEaten += game.getPelletsEaten();
+    }
+    
+    public void merge(BatchReport other) {
+        games += other.games;
+        wins += other.wins;
+        totalScore += other.totalScore;
+        minScore = Math.min(minScore, other.minScore);
+        maxScore = Math.max(maxScore, other.maxScore);
+        totalTicks += other.totalTicks;
+        totalPelletsEaten += other.totalPelletsEaten;
+    }
+    
+    void setTiming(long wallNanos, int parallelism) {
+        this.wallNanos = wallNanos;
+        this.parallelism = parallelism;
+    }
+    
+    public int getGames() {
+        return games;
+    }
+    
+    public int getWins() {
+        return wins;
+    }
+    
+    public double getWinRate() {
+        return games == 0 ? 0 : (double) wins / games;
+    }
+    
+    public double getMeanScore() {
+        return games == 0 ? 0 : (double) totalScore / games;
+    }
+    
+    public int getMinScore() {
+        return games == 0 ? 0 : minScore;
+    }
+    
+    public int getMaxScore() {
+        return games == 0 ? 0 : maxScore;
+    }
+    
+    public double getMeanSurvivalTicks() {
+        return games == 0 ? 0 : (double) totalTicks / games;
+    }
+    
+    public double getMeanSurvivalSeconds() {
+        return getMeanSurvivalTicks() / Game.TICKS_PER_SECOND;
+    }
+    
+    public double getMeanPelletsEaten() {
+        return games == 0 ? 0 : (double) totalPelletsEaten / games;
+    }
+    
+    public long getTotalTicks() {
+        return totalTicks;
+    }
+    
+    public double getWallSeconds() {
+        return wallNanos / 1e9;
+    }
+    
+    public double getGamesPerSecond() {
+        return wallNanos == 0 ? 0 : games / getWallSeconds();
+    }
+    
+    // Throughput per worker, to see how well the batch scales with cores
+    public double getGamesPerSecondPerCore() {
+        return getGamesPerSecond() / parallelism;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format(
+            "games=%d wins=%d (%.1f%%) score mean=%.1f min=%d max=%d%n" +
+            "survival mean=%.0f ticks (%.1f s) pellets mean=%.1f%n" +
+            "wall=%.2f s games/s=%.0f games/s/core=%.0f ticks/s=%.0f (%d threads)",
+            games, wins, 100 * getWinRate(), getMeanScore(), getMinScore(), getMaxScore(),
+            getMeanSurvivalTicks(), getMeanSurvivalSeconds(), getMeanPelletsEaten(),
+            getWallSeconds(), getGamesPerSecond(), getGamesPerSecondPerCore(),
+            wallNanos == 0 ? 0 : totalTicks / getWallSeconds(), parallelism);
+    }
+}
@@ -0,0 +1,155 @@
+package pacman;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Runs many headless games across all cores. Each game gets its own maze copy, seed and controller,
+// so games share nothing mutable and workers never need to synchronise until their reports are merged.
+public class BatchSimulator {
+    // Below this many games a task just runs them instead of splitting further
+    private static final int GAMES_PER_LEAF = 16;
+    
+    private final Maze template;          // null when every game gets a maze of its own
+    private final MazeGenerator generator;
+    private final PathfinderType ghostPathfinder; // null keeps each ghost's own
+    private final int maxTicks;
+    private int pacManCount = 1;
+    private int ghostCount = 4;
+    
+    public BatchSimulator(Maze template, PathfinderType ghostPathfinder, int maxTicks) {
+        this.template = template;
+        this.generator = null;
+        this.ghostPathfinder = ghostPathfinder;
+        this.maxTicks = maxTicks;
+        
+        // Build the shared path table up front so workers don't race to build it
+        template.getPathOracle();
+    }
+    
+    // Every game is played on a freshly generated maze, made from the game's own seed
+    public BatchSimulator(MazeGenerator generator, PathfinderType ghostPathfinder, int maxTicks) {
+        this.template = null;
+        this.generator = generator;
+        this.ghostPathfinder = ghostPathfinder;
+        this.maxTicks = maxTicks;
+    }
+    
+    // Play swarm games with this many Pac-Men and ghosts instead of the usual one and four
+    public void setSwarm(int pacManCount, int ghostCount) {
+        this.pacManCount = pacManCount;
+        this.ghostCount = ghostCount;
+    }
+    
+    public BatchReport run(long firstSeed, int games) {
+        return run(firstSeed, games, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public BatchReport run(long firstSeed, int games, int parallelism) {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            BatchReport report = pool.invoke(new SimulateTask(firstSeed, firstSeed + games));
+            report.setTiming(System.nanoTime() - start, parallelism);
+            return report;
+        } finally {
+            pool.shutdown();
+        }
+    }
+    
+    // Plays one game to the end (or the tick cap) with a random walk controller for each Pac-Man
+    public Game play(long seed) {
+        Maze maze;
+        if (generator != null) {
+            maze = generator.generate(seed);
+            maze.setPathOracleEnabled(ghostPathfinder == null);
+        } else {
+            maze = new Maze(template);
+        }
+        Game game = new Game(maze, seed, pacManCount, ghostCount);
+        if (ghostPathfinder != null) {
+            game.setGhostPathfinder(ghostPathfinder);
+        }
+        if (pacManCount == 1) {
+            PacManController controller = new RandomWalkController(seed);
+            while (!game.isFinished() && game.getTick() < maxTicks) {
+                game.step(controller.nextInput(game));
+            }
+            return game;
+        }
+        
+        RandomWalkController[] controllers = new RandomWalkController[pacManCount];
+        for (int i = 0; i < pacManCount; i++) {
+            controllers[i] = new RandomWalkController(seed * pacManCount + i);
+        }
+        Direction[] inputs = new Direction[pacManCount];
+        while (!game.isFinished() && game.getTick() < maxTicks) {
+            for (int i = 0; i < pacManCount; i++) {
+                inputs[i] = controllers[i].nextInput(game, game.getPacMen().get(i));
+            }
+            game.step(inputs);
+        }
+        return game;
+    }
+    
+    // Splits a range of seeds in half until it is small enough to run directly
+    private class SimulateTask extends RecursiveTask<BatchReport> {
+        private final long fromSeed;
+        private final long toSeed;
+        
+        SimulateTask(long fromSeed, long toSeed) {
+            this.fromSeed = fromSeed;
+            this.toSeed = toSeed;
+        }
+        
+        @Override
+        protected BatchReport compute() {
+            if (toSeed - fromSeed <= GAMES_PER_LEAF) {
+                BatchReport report = new BatchReport();
+                for (long seed = fromSeed; seed < toSeed; seed++) {
+                    report.record(play(seed));
+                }
+                return report;
+            }
+            
+            long mid = (fromSeed + toSeed) >>> 1;
+            SimulateTask left = new SimulateTask(fromSeed, mid);
+            left.fork();
+            BatchReport report = new SimulateTask(mid, toSeed).compute();
+            report.merge(left.join());
+            return report;
+        }
+    }
+    
+    // Usage: BatchSimulator [games] [threads] [TABLE|PATHFINDER] [maxTicks] [WIDTHxHEIGHT|STANDARD] [PACMENxGHOSTS]
+    // PATHFINDER is any PathfinderType: BFS, BIT_BFS, A_STAR, JUMP_POINT, JUNCTION, HIERARCHICAL, FLOW_FIELD or
+    // INCREMENTAL. Naming one turns the path table off so the ghosts really search with it. Giving a size
+    // plays every game on its own generated maze instead of the standard one. The last argument plays
+    // swarm games, e.g. 4x400.
+    public static void main(String[] args) {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        PathfinderType pathfinder = args.length > 2 && !args[2].equals("TABLE") ? PathfinderType.valueOf(args[2]) : null;
+        int maxTicks = args.length > 3 ? Integer.parseInt(args[3]) : 5 * 60 * Game.TICKS_PER_SECOND;
+        
+        BatchSimulator simulator;
+        if (args.length > 4 && !args[4].equals("STANDARD")) {
+            String[] size = args[4].split("x");
+            MazeGenerator generator = new MazeGenerator(Integer.parseInt(size[0]), Integer.parseInt(size[1]));
+            simulator = new BatchSimulator(generator, pathfinder, maxTicks);
+            System.out.println("Mazes: generated " + args[4]);
+        } else {
+            Maze template = Game.newStandardMaze();
+            if (pathfinder != null) {
+                template.setPathOracleEnabled(false);
+            }
+            simulator = new BatchSimulator(template, pathfinder, maxTicks);
+        }
+        if (args.length > 5) {
+            String[] swarm = args[5].split("x");
+            simulator.setSwarm(Integer.parseInt(swarm[0]), Integer.parseInt(swarm[1]));
+            System.out.println("Swarm: " + swarm[0] + " Pac-Men, " + swarm[1] + " ghosts");
+        }
+        System.out.println("Ghost AI: " + (pathfinder == null ? "path table" : pathfinder));
+        System.out.println(simulator.run(0, games, threads));
+    }
+}
@@ -0,0 +1,70 @@
+package pacman;
+
+// BFS pathfinder - uninformed search with a primitive ring buffer queue, allocates nothing per search
+class BfsPathfinder extends GridPathfinder {
+    private final int[] queue;       // Ring buffer of cell indices
+    private final int queueMask;
+    private final byte[] firstSteps; // Index into Grid.DIRECTIONS of the first step towards each visited cell
+    private int tail;
+    
+    public BfsPathfinder(Maze maze) {
+        this(maze, MAX_WINDOW);
+    }
+    
+    private BfsPathfinder(Maze maze, int window) {
+        super(maze, window);
+        int cells = width * height;
+        int capacity = Integer.highestOneBit(Math.max(1, cells - 1)) << 1;
+        this.queue = new int[capacity];
+        this.queueMask = capacity - 1;
+        this.firstSteps = new byte[cells];
+    }
+    
+    @Override
+    protected int search(int start, int target) {
+        int head = 0;
+        tail = 0;
+        visited[start] = generation;
+        firstSteps[start] = NO_STEP;
+        queue[tail++ & queueMask] = start;
+        int depth = 0;
+        int layerEnd = tail; // Queue position where the next layer of cells starts
+        
+        while (head != tail) {
+            if (head == layerEnd) {
+                depth++;
+                layerEnd = tail;
+            }
+            int cell = queue[head++ & queueMask];
+            if (cell == target) {
+                pathLength = depth;
+                return firstSteps[cell];
+            }
+            expandedNodes++;
+            
+            // Same neighbour order as the path table, so ties break the same way
+            int open = openDirections(cell);
+            for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                if ((open & (1 << d)) != 0) {
+                    tryDirection(cell, d);
+                }
+            }
+        }
+        return NO_STEP;
+    }
+    
+    @Override
+    protected GridPathfinder withWindow(int window) {
+        return new BfsPathfinder(maze, window);
+    }
+    
+    private void tryDirection(int from, int direction) {
+        int cell = openNeighbor(from, direction);
+        if (visited[cell] == generation) {
+            return;
+        }
+        visited[cell] = generation;
+        firstSteps[cell] = firstSteps[from] == NO_STEP ? (byte) direction : firstSteps[from];
+        queue[tail++ & queueMask] = cell;
+    }
+}
@@ -0,0 +1,223 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Bit-parallel BFS pathfinder - grows whole BFS layers out from the target on bitboards, 64 cells per word:
+// a layer is the last one shifted one step every way, masked by the open cells and those not reached yet.
+// The first step is then the first neighbour of the start in the layer before it, the same one the queue BFS
+// picks. The window is whole chunks of the maze, at most two by two, so the open cells are copied straight
+// from its bitboards; mazes that small are searched whole, tunnels included. On bigger ones the window is the
+// chunks that best centre the pair, and when the pair doesn't fit or a path leaving the window could be
+// shorter (see GridPathfinder) the search is handed to the maze's BFS pathfinder. The layer step itself is a
+// LayerKernel, so a wider one (e.g. on the Vector API, where the build allows incubator modules) can be
+// plugged in.
+public class BitBfsPathfinder implements Pathfinder {
+    // One BFS layer over words from to to - 1 of a padded bitboard, stride words to a row. Each word of
+    // next becomes the cells next to the frontier that are open and not yet reached, and reached takes them
+    // in. Words either side of the range and a row above and below it may be read. Returns the OR of the
+    // words of next, so zero when nothing new was reached.
+    public interface LayerKernel {
+        long expand(long[] frontier, long[] next, long[] reached, long[] open, int from, int to, int stride);
+    }
+    
+    // Plain Java kernel, one word at a time
+    public static final LayerKernel SCALAR = (frontier, next, reached, open, from, to, stride) -> {
+        long any = 0;
+        for (int i = from; i < to; i++) {
+            long cell = frontier[i];
+            long spread = cell << 1 | cell >>> 1 | frontier[i - 1] >>> 63 | frontier[i + 1] << 63
+                    | frontier[i - stride] | frontier[i + stride];
+            long grown = spread & open[i] & ~reached[i];
+            next[i] = grown;
+            reached[i] |= grown;
+            any |= grown;
+        }
+        return any;
+    };
+    
+    private static final int MAX_CHUNKS = 2;  // Window chunks along each side
+    private static final int MAX_STRIDE = MAX_CHUNKS + 2;
+    private static final int MAX_SIDE = MAX_CHUNKS * Maze.CHUNK_SIZE;
+    
+    private final Maze maze;
+    private final LayerKernel kernel;
+    private final boolean wholeMaze;
+    // Bitboards with an empty word either side of each row and an empty row above and below, so the kernel
+    // needs no edge cases. Cell (x, y) of the window is bit x & 63 of word (y + 1) * stride + (x >> 6) + 1.
+    private final long[] open = new long[(MAX_SIDE + 2) * MAX_STRIDE];
+    private long[] frontier = new long[open.length];
+    private long[] previous = new long[open.length];
+    private final long[] reached = new long[open.length];
+    private int stride;
+    private int rows;
+    private int windowWidth;
+    private int originX = -1;      // Maze position of the window's top left cell, or -1 before the first search
+    private int originY;
+    private int layoutVersion;     // Maze walls open holds
+    private int reachedWords;      // Words of reached the last search used, or 0 when it never started
+    private int handedOff;         // Nodes the BFS pathfinder expanded when the last search was handed to it
+    
+    public BitBfsPathfinder(Maze maze) {
+        this(maze, SCALAR);
+    }
+    
+    public BitBfsPathfinder(Maze maze, LayerKernel kernel) {
+        this.maze = maze;
+        this.kernel = kernel;
+        this.wholeMaze = Maze.chunksAcross(maze.getWidth()) <= MAX_CHUNKS
+                && Maze.chunksAcross(maze.getHeight()) <= MAX_CHUNKS;
+    }
+    
+    @Override
+    public Direction firstStep(int fromX, int fromY, int toX, int toY) {
+        reachedWords = 0;
+        handedOff = 0;
+        if (maze.isWall(fromX, fromY) || maze.isWall(toX, toY) || (fromX == toX && fromY == toY)) {
+            return Direction.NONE;
+        }
+        if (wholeMaze) {
+            placeWindow(0, 0);
+        } else {
+            int x = windowStart(fromX, toX, maze.getWidth());
+            int y = windowStart(fromY, toY, maze.getHeight());
+            if (x < 0 || y < 0) {
+                return handOff(fromX, fromY, toX, toY);
+            }
+            placeWindow(x, y);
+        }
+        int startX = fromX - originX;
+        int startY = fromY - originY;
+        int targetX = toX - originX;
+        int targetY = toY - originY;
+        
+        // Layers out from the target until one holds the start
+        int used = (rows + 2) * stride;
+        Arrays.fill(frontier, 0, used, 0L);
+        Arrays.fill(previous, 0, used, 0L);
+        Arrays.fill(reached, 0, used, 0L);
+        reachedWords = used;
+        setBit(frontier, targetX, targetY);
+        setBit(reached, targetX, targetY);
+        boolean wraps = wholeMaze && maze.wrapsTunnels();
+        int layer = 0;
+        while (!testBit(frontier, startX, startY)) {
+            layer++;
+            long[] swap = previous;
+            previous = frontier;
+            frontier = swap;
+            // Layer n lies within n rows of the target
+            int top = Math.max(0, targetY - layer);
+            int bottom = Math.min(rows - 1, targetY + layer);
+            long grown = kernel.expand(previous, frontier, reached, open, (top + 1) * stride, (bottom + 2) * stride,
+                    stride);
+            if (wraps) {
+                grown |= wrapTunnels(top, bottom);
+            }
+            if (grown == 0) {
+                return wholeMaze ? Direction.NONE : handOff(fromX, fromY, toX, toY);
+            }
+        }
+        if (!wholeMaze && layer > GridPathfinder.shortestOutside(maze, originX, originY, windowWidth, rows,
+                fromX, fromY, toX, toY)) {
+            return handOff(fromX, fromY, toX, toY);
+        }
+        
+        // Same neighbour order as the path table, so ties break the same way
+        for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+            int x = startX + Grid.DX[d];
+            int y = startY + Grid.DY[d];
+            if (wraps) {
+                x = maze.wrapX(x);
+            }
+            if (x >= 0 && x < windowWidth && y >= 0 && y < rows && testBit(previous, x, y)) {
+                return Grid.DIRECTIONS[d];
+            }
+        }
+        return Direction.NONE;
+    }
+    
+    // Cells reached besides the target, counted when asked rather than layer by layer
+    @Override
+    public int getExpandedNodes() {
+        int cells = 0;
+        for (int i = 0; i < reachedWords; i++) {
+            cells += Long.bitCount(reached[i]);
+        }
+        return Math.max(0, cells - 1) + handedOff;
+    }
+    
+    // Searches with the maze's BFS pathfinder, whose windows grow until the step is a shortest one
+    private Direction handOff(int fromX, int fromY, int toX, int toY) {
+        Pathfinder bfs = maze.getPathfinder(PathfinderType.BFS);
+        Direction direction = bfs.firstStep(fromX, fromY, toX, toY);
+        handedOff = bfs.getExpandedNodes();
+        return direction;
+    }
+    
+    // First column (or row) of the whole chunks that best centre a pair along one axis of the maze, or -1
+    // when no window holds them both
+    private static int windowStart(int from, int to, int cells) {
+        int low = Math.min(from, to);
+        int high = Math.max(from, to);
+        int last = Math.max(0, Maze.chunksAcross(cells) - MAX_CHUNKS) * Maze.CHUNK_SIZE;
+        int best = -1;
+        int bestMargin = -1;
+        for (int start = Math.min(low, last) & -Maze.CHUNK_SIZE; start >= 0 && start + MAX_SIDE > high;
+                start -= Maze.CHUNK_SIZE) {
+            int margin = Math.min(low - start, start + MAX_SIDE - 1 - high);
+            if (margin > bestMargin) {
+                best = start;
+                bestMargin = margin;
+            }
+        }
+        return best;
+    }
+    
+    // The kernel only steps within the window; join the two ends of each row through the tunnels
+    private int wrapTunnels(int top, int bottom) {
+        int last = windowWidth - 1;
+        int cells = 0;
+        for (int y = top; y <= bottom; y++) {
+            if (testBit(previous, last, y) && testBit(open, 0, y) && !testBit(reached, 0, y)) {
+                setBit(frontier, 0, y);
+                setBit(reached, 0, y);
+                cells++;
+            }
+            if (testBit(previous, 0, y) && testBit(open, last, y) && !testBit(reached, last, y)) {
+                setBit(frontier, last, y);
+                setBit(reached, last, y);
+                cells++;
+            }
+        }
+        return cells;
+    }
+    
+    // Copy the open cells of the chunks from (x, y) on, unless they are already there
+    private void placeWindow(int x, int y) {
+        if (x == originX && y == originY && layoutVersion == maze.getLayoutVersion()) {
+            return;
+        }
+        originX = x;
+        originY = y;
+        layoutVersion = maze.getLayoutVersion();
+        windowWidth = Math.min(maze.getWidth() - x, MAX_SIDE);
+        rows = Math.min(maze.getHeight() - y, MAX_SIDE);
+        stride = Maze.chunksAcross(windowWidth) + 2;
+        Arrays.fill(open, 0L);
+        for (int row = 0; row < rows; row++) {
+            for (int word = 0; word + 2 < stride; word++) {
+                int cells = Math.min(Maze.CHUNK_SIZE, windowWidth - word * Maze.CHUNK_SIZE);
+                long inside = cells == Maze.CHUNK_SIZE ? -1L : (1L << cells) - 1;
+                open[(row + 1) * stride + word + 1] = ~maze.getWallWord(x + word * Maze.CHUNK_SIZE, y + row) & inside;
+            }
+        }
+    }
+    
+    private boolean testBit(long[] board, int x, int y) {
+        return (board[(y + 1) * stride + (x >> Maze.CHUNK_SHIFT) + 1] & (1L << x)) != 0;
+    }
+    
+    private void setBit(long[] board, int x, int y) {
+        board[(y + 1) * stride + (x >> Maze.CHUNK_SHIFT) + 1] |= 1L << x;
+    }
+}
@@ -0,0 +1,69 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Binary min-heap of cells keyed by priority, backed by a single long[]
+class CellHeap {
+    private long[] entries; // Priority in the high 32 bits, cell in the low 32 bits; doubles when full
+    private int size;
+    
+    public CellHeap(int capacity) {
+        this.entries = new long[capacity];
+    }
+    
+    public void clear() {
+        size = 0;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void push(int cell, int priority) {
+        long entry = ((long) priority << 32) | cell;
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, 2 * size);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (entries[parent] <= entry) {
+                break;
+            }
+            entries[i] = entries[parent];
+            i = parent;
+        }
+        entries[i] = entry;
+    }
+    
+    // Cell with the lowest priority, left in the heap
+    public int peek() {
+        return (int) entries[0];
+    }
+    
+    public int peekPriority() {
+        return (int) (entries[0] >>> 32);
+    }
+    
+    public int pop() {
+        int cell = (int) entries[0];
+        long last = entries[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && entries[child + 1] < entries[child]) {
+                child++;
+            }
+            if (last <= entries[child]) {
+                break;
+            }
+            entries[i] = entries[child];
+            i = child;
+        }
+        if (size > 0) {
+            entries[i] = last;
+        }
+        return cell;
+    }
+}
@@ -0,0 +1,309 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Cluster graph - the abstract layer for hierarchical pathfinding. The maze is cut into CLUSTER_SIZE square
+// clusters. Every run of open cells facing each other across a cluster border becomes one entrance: a node on
+// each side, one step apart. Costs between the entrances of a cluster are found with a BFS inside the cluster
+// the first time a search reaches it, so a huge maze only pays for the clusters its ghosts actually use.
+// Each border segment between two clusters has a fixed block of node numbers, so when a wall flips only the
+// segments it lies on are walked again, and only the costs of the clusters next to it are dropped.
+class ClusterGraph {
+    public static final int CLUSTER_SIZE = 16;
+    public static final int LOCAL_CELLS = CLUSTER_SIZE * CLUSTER_SIZE;
+    
+    // Runs of open cells along one segment are at least one closed pair apart, so there are at most this many
+    private static final int MAX_ENTRANCES = CLUSTER_SIZE / 2;
+    // A cluster's nodes by slot: up to MAX_ENTRANCES on each of its left, right, top and bottom sides
+    public static final int SLOTS = 4 * MAX_ENTRANCES;
+    private static final int SEGMENT_NODES = 2 * MAX_ENTRANCES;
+    private static final int LEFT = 0;
+    private static final int RIGHT = 1;
+    private static final int TOP = 2;
+    private static final int BOTTOM = 3;
+    
+    private final Maze maze;
+    private final int width;
+    private final int height;
+    private final int clusterColumns;
+    private final int clusterRows;
+    private final boolean tunnelBorder;   // The right edge of the maze borders the left edge through the tunnels
+    private final int verticalSegments;   // Segments of the borders between columns of clusters come first
+    private int layoutVersion;            // Maze walls the graph is up to date with
+    // Node segment * SEGMENT_NODES + 2 * entrance + side: side 0 is in the cluster left of or above the
+    // border, side 1 right of or below it, so a node's partner is node ^ 1
+    private final int[] nodeCells;        // Cell index x + y * width of each entrance node
+    private final byte[] entranceCounts;  // Entrances in use on each segment
+    private final int[][] clusterCosts;   // Per cluster, steps between each pair of its slots (-1 if none); null until needed
+    private final int[] queue = new int[LOCAL_CELLS];
+    private final int[] scratchNodes = new int[SLOTS];
+    private final int[] scratchDistances = new int[LOCAL_CELLS];
+    
+    public ClusterGraph(Maze maze) {
+        this.maze = maze;
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+        this.clusterColumns = (width + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.clusterRows = (height + CLUSTER_SIZE - 1) / CLUSTER_SIZE;
+        this.tunnelBorder = maze.wrapsTunnels() && clusterColumns > 1;
+        this.layoutVersion = maze.getLayoutVersion();
+        this.verticalSegments = clusterColumns * clusterRows;
+        int segments = verticalSegments + clusterColumns * (clusterRows - 1);
+        nodeCells = new int[segments * SEGMENT_NODES];
+        entranceCounts = new byte[segments];
+        clusterCosts = new int[clusterColumns * clusterRows][];
+        for (int segment = 0; segment < segments; segment++) {
+            findEntrances(segment);
+        }
+    }
+    
+    // Takes in the walls flipped since the graph was last brought up to date. False when the maze can't say
+    // which cells changed (the tunnels changed, or too much changed), and the graph has to be built again.
+    public boolean catchUp() {
+        int current = maze.getLayoutVersion();
+        for (int version = layoutVersion; version < current; version++) {
+            int cell = maze.getWallChange(version);
+            if (cell < 0) {
+                return false;
+            }
+            int cluster = clusterOf(cell);
+            clusterCosts[cluster] = null;
+            
+            // A cell on the edge of its cluster can open or close an entrance on that side
+            int localX = cell % width % CLUSTER_SIZE;
+            int localY = cell / width % CLUSTER_SIZE;
+            int column = cluster % clusterColumns;
+            int row = cluster / clusterColumns;
+            if (localX == 0) {
+                refreshSegment(sideSegment(cluster, LEFT));
+            }
+            if (localX == Math.min(CLUSTER_SIZE, width - column * CLUSTER_SIZE) - 1) {
+                refreshSegment(sideSegment(cluster, RIGHT));
+            }
+            if (localY == 0) {
+                refreshSegment(sideSegment(cluster, TOP));
+            }
+            if (localY == Math.min(CLUSTER_SIZE, height - row * CLUSTER_SIZE) - 1) {
+                refreshSegment(sideSegment(cluster, BOTTOM));
+            }
+        }
+        layoutVersion = current;
+        return true;
+    }
+    
+    // Walks a segment again and drops the costs of the clusters either side of it
+    private void refreshSegment(int segment) {
+        if (segment < 0) {
+            return;
+        }
+        findEntrances(segment);
+        if (segment < verticalSegments) {
+            int border = segment / clusterRows;
+            int row = segment % clusterRows;
+            clusterCosts[border + row * clusterColumns] = null;
+            clusterCosts[(border + 1) % clusterColumns + row * clusterColumns] = null;
+        } else {
+            int column = (segment - verticalSegments) / (clusterRows - 1);
+            int border = (segment - verticalSegments) % (clusterRows - 1);
+            clusterCosts[column + border * clusterColumns] = null;
+            clusterCosts[column + (border + 1) * clusterColumns] = null;
+        }
+    }
+    
+    // Walk along one segment, adding an entrance in the middle of each run of open pairs. Vertical segment
+    // border * clusterRows + row lies right of cluster column border, in that row of clusters; the last
+    // border is the one through the tunnels. Horizontal ones follow, column * (clusterRows - 1) + border.
+    private void findEntrances(int segment) {
+        int x;
+        int y;
+        int otherX;
+        int otherY;
+        int dx;
+        int dy;
+        int length;
+        if (segment < verticalSegments) {
+            int border = segment / clusterRows;
+            x = Math.min(width, (border + 1) * CLUSTER_SIZE) - 1;
+            otherX = x + 1;
+            if (otherX == width) {
+                if (!tunnelBorder) {
+                    return;
+                }
+                otherX = 0;
+            }
+            y = segment % clusterRows * CLUSTER_SIZE;
+            otherY = y;
+            dx = 0;
+            dy = 1;
+            length = Math.min(CLUSTER_SIZE, height - y);
+        } else {
+            int column = (segment - verticalSegments) / (clusterRows - 1);
+            y = ((segment - verticalSegments) % (clusterRows - 1) + 1) * CLUSTER_SIZE - 1;
+            otherY = y + 1;
+            x = column * CLUSTER_SIZE;
+            otherX = x;
+            dx = 1;
+            dy = 0;
+            length = Math.min(CLUSTER_SIZE, width - x);
+        }
+        
+        int entrances = 0;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = i < length
+                    && !maze.isWall(x + dx * i, y + dy * i) && !maze.isWall(otherX + dx * i, otherY + dy * i);
+            if (runStart >= 0 && !open) {
+                int middle = (runStart + i - 1) / 2;
+                int node = segment * SEGMENT_NODES + 2 * entrances++;
+                nodeCells[node] = x + dx * middle + (y + dy * middle) * width;
+                nodeCells[node + 1] = otherX + dx * middle + (otherY + dy * middle) * width;
+                runStart = -1;
+            }
+            if (open && runStart < 0) {
+                runStart = i;
+            }
+        }
+        entranceCounts[segment] = (byte) entrances;
+    }
+    
+    // Segment on one side of a cluster, or -1 where the cluster is on the edge of the maze
+    private int sideSegment(int cluster, int side) {
+        int column = cluster % clusterColumns;
+        int row = cluster / clusterColumns;
+        switch (side) {
+            case LEFT:
+                if (column == 0) {
+                    return tunnelBorder ? (clusterColumns - 1) * clusterRows + row : -1;
+                }
+                return (column - 1) * clusterRows + row;
+            case RIGHT:
+                if (column == clusterColumns - 1 && !tunnelBorder) {
+                    return -1;
+                }
+                return column * clusterRows + row;
+            case TOP:
+                return row == 0 ? -1 : verticalSegments + column * (clusterRows - 1) + row - 1;
+            default:
+                return row == clusterRows - 1 ? -1 : verticalSegments + column * (clusterRows - 1) + row;
+        }
+    }
+    
+    public int clusterOf(int cell) {
+        return (cell % width / CLUSTER_SIZE) + (cell / width / CLUSTER_SIZE) * clusterColumns;
+    }
+    
+    // Highest node number plus one; numbers of entrances not in use are skipped by getClusterNodes
+    public int getNodeCount() {
+        return nodeCells.length;
+    }
+    
+    public int getNodeCell(int node) {
+        return nodeCells[node];
+    }
+    
+    public int getPartner(int node) {
+        return node ^ 1;
+    }
+    
+    // Fills nodes (SLOTS long) with the nodes of a cluster, in slot order, and returns how many there are
+    public int getClusterNodes(int cluster, int[] nodes) {
+        int count = 0;
+        for (int side = LEFT; side <= BOTTOM; side++) {
+            int segment = sideSegment(cluster, side);
+            if (segment < 0) {
+                continue;
+            }
+            // The cluster is right of or below the segments on its left and top sides
+            int nodeSide = side == LEFT || side == TOP ? 1 : 0;
+            for (int entrance = 0; entrance < entranceCounts[segment]; entrance++) {
+                nodes[count++] = segment * SEGMENT_NODES + 2 * entrance + nodeSide;
+            }
+        }
+        return count;
+    }
+    
+    // Position of a node among the SLOTS of its cluster
+    public int getSlot(int node) {
+        int segment = node / SEGMENT_NODES;
+        int entrance = node % SEGMENT_NODES / 2;
+        boolean first = (node & 1) == 0;
+        int side;
+        if (segment < verticalSegments) {
+            side = first ? RIGHT : LEFT;
+        } else {
+            side = first ? BOTTOM : TOP;
+        }
+        return side * MAX_ENTRANCES + entrance;
+    }
+    
+    // Steps between the nodes at two slots of a cluster, or -1 when they are not connected inside it
+    public int getCost(int cluster, int from, int to) {
+        int[] costs = clusterCosts[cluster];
+        if (costs == null) {
+            costs = buildCosts(cluster);
+            clusterCosts[cluster] = costs;
+        }
+        return costs[from * SLOTS + to];
+    }
+    
+    private int[] buildCosts(int cluster) {
+        int[] costs = new int[SLOTS * SLOTS];
+        Arrays.fill(costs, -1);
+        int count = getClusterNodes(cluster, scratchNodes);
+        for (int i = 0; i < count; i++) {
+            search(nodeCells[scratchNodes[i]], scratchDistances, null);
+            int from = getSlot(scratchNodes[i]);
+            for (int j = 0; j < count; j++) {
+                int local = localCell(nodeCells[scratchNodes[j]]);
+                costs[from * SLOTS + getSlot(scratchNodes[j])] = scratchDistances[local];
+            }
+        }
+        return costs;
+    }
+    
+    // Index of a cell within its cluster, for the arrays search fills in
+    public int localCell(int cell) {
+        return cell % width % CLUSTER_SIZE + (cell / width % CLUSTER_SIZE) * CLUSTER_SIZE;
+    }
+    
+    // BFS from a cell that never leaves its cluster. Fills in the distance to every cell of the cluster, -1 where
+    // it is not reached, and when firstSteps is given the direction of the first step towards each reached cell
+    // (index into Direction.values()). Both arrays are LOCAL_CELLS long and indexed by localCell.
+    public void search(int cell, int[] distances, byte[] firstSteps) {
+        Arrays.fill(distances, -1);
+        int originX = cell % width / CLUSTER_SIZE * CLUSTER_SIZE;
+        int originY = cell / width / CLUSTER_SIZE * CLUSTER_SIZE;
+        int clusterWidth = Math.min(CLUSTER_SIZE, width - originX);
+        int clusterHeight = Math.min(CLUSTER_SIZE, height - originY);
+        int start = localCell(cell);
+        int head = 0;
+        int tail = 0;
+        distances[start] = 0;
+        if (firstSteps != null) {
+            firstSteps[start] = -1;
+        }
+        queue[tail++] = start;
+        while (head < tail) {
+            int local = queue[head++];
+            int localX = local % CLUSTER_SIZE;
+            int localY = local / CLUSTER_SIZE;
+            int open = maze.openNeighbors(originX + localX, originY + localY);
+            for (int d = 0; d < 4; d++) {
+                int nextX = localX + Grid.DX[d];
+                int nextY = localY + Grid.DY[d];
+                if ((open & (1 << d)) == 0 || nextX < 0 || nextX >= clusterWidth || nextY < 0 || nextY >= clusterHeight) {
+                    continue;
+                }
+                int next = nextX + nextY * CLUSTER_SIZE;
+                if (distances[next] >= 0) {
+                    continue;
+                }
+                distances[next] = distances[local] + 1;
+                if (firstSteps != null) {
+                    firstSteps[next] = firstSteps[local] < 0 ? (byte) d : firstSteps[local];
+                }
+                queue[tail++] = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package pacman;
+
+// D* Lite planner - one ghost's search towards one target, kept between ticks and repaired instead of redone.
+// The search grows out from the target, so as the ghost walks only the heuristic offset km changes, and when
+// a wall flips (see Maze.getWallChange) only cells whose distance really changed are expanded again. When the
+// target moves the root moves with it: that is just another edge change, one to the old root and one to the
+// new, and only the cells between the ghost and the target whose distance changed are repaired. Like
+// FlowField it covers a FIELD_SIZE window on big mazes, placed around the pair. Pairs that don't fit in it, and
+// steps the window can't vouch for because a path leaving it could be shorter, go to the maze's BFS pathfinder,
+// whose windows grow until the step is a shortest one. Decisions depend only on the cells, the target and the
+// window, so a copy that keeps the window makes the same ones.
+public class DStarLite {
+    public static final int FIELD_SIZE = 2 * GridPathfinder.MAX_WINDOW;
+    
+    private static final int INFINITE = Integer.MAX_VALUE;
+    // Keys pack k1 above k2 in one int: distances stay below 2^14 in a window, and km is kept below this
+    private static final int MAX_KM = 1 << 14;
+    private static final int K2_BITS = 15;
+    private static final int WALL = 1 << 4;
+    
+    private final Maze maze;
+    private final int width;          // Window size; the whole maze when it fits
+    private final int height;
+    private final boolean wholeMaze;
+    private final int[] distances;    // g: steps to the root as last worked out
+    private final int[] lookahead;    // rhs: one more than the best neighbour's g, or 0 at the root
+    private final int[] queuedKeys;   // Key of a cell's live heap entry, or -1 when it is not queued
+    private final byte[] links;       // Open directions from a cell that stay in the window, or WALL
+    private final int[] offsets;      // Change in window cell for a step in each direction
+    private final int[] visited;      // Generation stamps; other cells count as unreached
+    private final CellHeap open;
+    private int generation = 0;
+    private boolean rooted = false;   // Whether rootX and rootY and the window have been placed yet
+    private boolean searching = false; // Whether the arrays hold a search for them
+    private int originX;              // Maze position of the window's top left cell
+    private int originY;
+    private int rootX;                // Maze position the search is rooted at, the target
+    private int rootY;
+    private int root;                 // Window cell of the root
+    private int last;                 // Window cell the ghost was on at the last repair
+    private int km;                   // Sum of heuristic distances the ghost has moved since starting over
+    private int layoutVersion;        // Maze walls the search is up to date with
+    private int expandedNodes;        // Including those of a search handed to the BFS pathfinder
+    private int restarts = 0;
+    
+    public DStarLite(Maze maze) {
+        this.maze = maze;
+        this.width = Math.min(maze.getWidth(), FIELD_SIZE);
+        this.height = Math.min(maze.getHeight(), FIELD_SIZE);
+        this.wholeMaze = width == maze.getWidth() && height == maze.getHeight();
+        this.distances = new int[width * height];
+        this.lookahead = new int[width * height];
+        this.queuedKeys = new int[width * height];
+        this.links = new byte[width * height];
+        this.offsets = new int[] {-width, width, -1, 1};
+        this.visited = new int[width * height];
+        this.open = new CellHeap(1024);
+    }
+    
+    // Planner for a copied game, rooted and placed like another; the search itself is redone on first use
+    public DStarLite(DStarLite other, Maze maze) {
+        this(maze);
+        this.rooted = other.rooted;
+        this.originX = other.originX;
+        this.originY = other.originY;
+        this.rootX = other.rootX;
+        this.rootY = other.rootY;
+    }
+    
+    // First step of a shortest path from (x, y) to the target, or NONE when there is none or we are there
+    public Direction nextStep(int x, int y, int toX, int toY) {
+        expandedNodes = 0;
+        if (maze.isWall(x, y) || maze.isWall(toX, toY) || (x == toX && y == toY)) {
+            return Direction.NONE;
+        }
+        if (Math.abs(toX - x) >= width || Math.abs(toY - y) >= height) {
+            return handOff(x, y, toX, toY);
+        }
+        if (!rooted || !inWindow(x, y) || !inWindow(toX, toY)) {
+            rootX = toX;
+            rootY = toY;
+            placeWindow(x, y);
+            searching = false;
+        }
+        int start = localCell(x, y);
+        if (!searching || km >= MAX_KM || !catchUpWalls()) {
+            rootX = toX;
+            rootY = toY;
+            startOver(start);
+        } else {
+            km += heuristic(last, start);
+            last = start;
+            moveRoot(toX, toY);
+        }
+        computeShortestPath(start);
+        
+        // Every neighbour one step closer is on a shortest path; take the first in the usual direction order
+        int distance = distance(start);
+        if (!wholeMaze && (distance == INFINITE || distance > GridPathfinder.shortestOutside(maze, originX, originY,
+                width, height, x, y, toX, toY))) {
+            return handOff(x, y, toX, toY);
+        }
+        if (distance == INFINITE) {
+            return Direction.NONE;
+        }
+        int ways = links[start];
+        while (ways != 0) {
+            int d = Integer.numberOfTrailingZeros(ways);
+            if (distance(step(start, d)) == distance - 1) {
+                return Grid.DIRECTIONS[d];
+            }
+            ways &= ways - 1;
+        }
+        return Direction.NONE;
+    }
+    
+    // Cells expanded by the last call to nextStep
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+    
+    // Number of times the search has been thrown away and started from scratch
+    public int getRestarts() {
+        return restarts;
+    }
+    
+    // Searches with the maze's BFS pathfinder; the search kept here is left as it is for the next call
+    private Direction handOff(int x, int y, int toX, int toY) {
+        Pathfinder bfs = maze.getPathfinder(PathfinderType.BFS);
+        Direction direction = bfs.firstStep(x, y, toX, toY);
+        expandedNodes += bfs.getExpandedNodes();
+        return direction;
+    }
+    
+    // Centre the ghost and the root in the window, keeping the window inside the maze
+    private void placeWindow(int x, int y) {
+        rooted = true;
+        if (!wholeMaze) {
+            int dx = Math.abs(rootX - x);
+            int dy = Math.abs(rootY - y);
+            originX = Math.max(0, Math.min(maze.getWidth() - width, Math.min(x, rootX) - (width - 1 - dx) / 2));
+            originY = Math.max(0, Math.min(maze.getHeight() - height, Math.min(y, rootY) - (height - 1 - dy) / 2));
+        }
+    }
+    
+    private void startOver(int start) {
+        searching = true;
+        restarts++;
+        generation = Grid.nextGeneration(generation, visited);
+        open.clear();
+        km = 0;
+        layoutVersion = maze.getLayoutVersion();
+        last = start;
+        root = localCell(rootX, rootY);
+        touch(root);
+        lookahead[root] = 0;
+        updateCell(root);
+    }
+    
+    // Root the search at the target's new cell. Every cell's lookahead other than the root's comes from its
+    // neighbours, so this only changes the lookahead of the old root and the new one; the heuristic is measured
+    // to the ghost, not to the root, so km and the queued keys stay valid.
+    private void moveRoot(int toX, int toY) {
+        if (toX == rootX && toY == rootY) {
+            return;
+        }
+        int oldRoot = root;
+        rootX = toX;
+        rootY = toY;
+        root = localCell(toX, toY);
+        touch(root);
+        lookahead[root] = 0;
+        updateCell(root);
+        updateCell(oldRoot);
+    }
+    
+    // Bring the search up to date with walls flipped since the last call. False when the maze cannot say
+    // which cells changed, and the search has to start over.
+    private boolean catchUpWalls() {
+        int current = maze.getLayoutVersion();
+        for (int version = layoutVersion; version < current; version++) {
+            int cell = maze.getWallChange(version);
+            if (cell < 0) {
+                return false;
+            }
+            int x = cell % maze.getWidth();
+            int y = cell / maze.getWidth();
+            if (!inWindow(x, y)) {
+                continue;
+            }
+            int local = localCell(x, y);
+            refresh(local);
+            for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                int next = neighbor(local, d);
+                if (next >= 0) {
+                    refresh(next);
+                }
+            }
+        }
+        layoutVersion = current;
+        return true;
+    }
+    
+    // Take in a wall flip at or next to a cell
+    private void refresh(int cell) {
+        if (visited[cell] == generation) {
+            links[cell] = linksOf(cell);
+        }
+        updateCell(cell);
+    }
+    
+    private void computeShortestPath(int start) {
+        while (true) {
+            // Skip entries whose cell has since been requeued under another key or settled
+            while (!open.isEmpty() && queuedKeys[open.peek()] != open.peekPriority()) {
+                open.pop();
+            }
+            if (open.isEmpty()) {
+                return;
+            }
+            int topKey = open.peekPriority();
+            if (topKey >= key(start) && distance(start) == lookahead[start]) {
+                return;
+            }
+            int cell = open.pop();
+            queuedKeys[cell] = -1;
+            expandedNodes++;
+            
+            int freshKey = key(cell);
+            if (topKey < freshKey) {
+                // Queued before the ghost moved on; put it back where it belongs now
+                queue(cell, freshKey);
+            } else if (distances[cell] > lookahead[cell]) {
+                distances[cell] = lookahead[cell];
+                updateNeighbors(cell);
+            } else {
+                distances[cell] = INFINITE;
+                updateCell(cell);
+                updateNeighbors(cell);
+            }
+        }
+    }
+    
+    private void updateNeighbors(int cell) {
+        int ways = links[cell] & ~WALL;
+        while (ways != 0) {
+            updateCell(step(cell, Integer.numberOfTrailingZeros(ways)));
+            ways &= ways - 1;
+        }
+    }
+    
+    // Work out a cell's lookahead from its neighbours again and queue it if that disagrees with its distance
+    private void updateCell(int cell) {
+        touch(cell);
+        if (cell != root) {
+            int best = INFINITE;
+            int ways = (links[cell] & WALL) == 0 ? links[cell] : 0;
+            while (ways != 0) {
+                int next = distance(step(cell, Integer.numberOfTrailingZeros(ways)));
+                if (next != INFINITE) {
+                    best = Math.min(best, next + 1);
+                }
+                ways &= ways - 1;
+            }
+            lookahead[cell] = best;
+        }
+        if (distances[cell] != lookahead[cell]) {
+            queue(cell, key(cell));
+        } else {
+            queuedKeys[cell] = -1;
+        }
+    }
+    
+    private void queue(int cell, int key) {
+        if (queuedKeys[cell] != key) {
+            queuedKeys[cell] = key;
+            open.push(cell, key);
+        }
+    }
+    
+    // Priority of a cell: k1 = min(g, rhs) + h + km in the high bits, ties broken by k2 = min(g, rhs)
+    private int key(int cell) {
+        int best = Math.min(distance(cell), visited[cell] == generation ? lookahead[cell] : INFINITE);
+        if (best == INFINITE) {
+            return INFINITE;
+        }
+        return (best + heuristic(cell, last) + km) << K2_BITS | best;
+    }
+    
+    private int distance(int cell) {
+        return visited[cell] == generation ? distances[cell] : INFINITE;
+    }
+    
+    private void touch(int cell) {
+        if (visited[cell] != generation) {
+            visited[cell] = generation;
+            distances[cell] = INFINITE;
+            lookahead[cell] = INFINITE;
+            queuedKeys[cell] = -1;
+            links[cell] = linksOf(cell);
+        }
+    }
+    
+    // Manhattan distance between window cells, the short way round through wrapping tunnels
+    private int heuristic(int a, int b) {
+        return Grid.manhattan(a, b, width, wholeMaze && maze.wrapsTunnels());
+    }
+    
+    // Open directions from a window cell as a mask like Maze.openNeighbors, without those leaving the window
+    private byte linksOf(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        if (maze.isWall(originX + x, originY + y)) {
+            return WALL;
+        }
+        int ways = maze.openNeighbors(originX + x, originY + y);
+        if (!wholeMaze) {
+            if (y == 0) {
+                ways &= ~1;
+            }
+            if (y == height - 1) {
+                ways &= ~2;
+            }
+            if (x == 0) {
+                ways &= ~4;
+            }
+            if (x == width - 1) {
+                ways &= ~8;
+            }
+        }
+        return (byte) ways;
+    }
+    
+    // Window cell one step from another in a direction its links say is open
+    private int step(int cell, int direction) {
+        if (direction >= 2) {
+            int x = cell % width;
+            if (direction == 2 && x == 0) {
+                return cell + width - 1; // Through the tunnel
+            }
+            if (direction == 3 && x == width - 1) {
+                return cell - width + 1;
+            }
+        }
+        return cell + offsets[direction];
+    }
+    
+    // Window cell one step from another, through tunnels when the window spans the maze; -1 outside
+    private int neighbor(int cell, int direction) {
+        int x = cell % width + Grid.DX[direction];
+        int y = cell / width + Grid.DY[direction];
+        if (wholeMaze) {
+            x = maze.wrapX(x);
+        }
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        return x + y * width;
+    }
+    
+    private boolean inWindow(int x, int y) {
+        return x >= originX && x < originX + width && y >= originY && y < originY + height;
+    }
+    
+    private int localCell(int x, int y) {
+        return (x - originX) + (y - originY) * width;
+    }
+}
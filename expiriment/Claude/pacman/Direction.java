@@ -0,0 +1,6 @@
+package pacman;
+
+// Direction enum for movement
+public enum Direction {
+    UP, DOWN, LEFT, RIGHT, NONE
+}
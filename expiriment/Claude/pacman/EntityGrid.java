@@ -0,0 +1,86 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Which entities stand on which cell. Entities are numbered from 0; each sits in a bucket picked by hashing its
+// cell, and buckets are intrusive linked lists over int arrays, so moving an entity and asking what is on a cell
+// are both O(1) and never allocate. Hashing the uniform cell grid keeps memory in line with the number of
+// entities rather than the size of the maze, which matters on the huge ones.
+class EntityGrid {
+    private static final int NOWHERE = -1;
+    
+    private final int width;        // Maze width, to turn a position into a cell number
+    private final int[] buckets;    // First entity of each bucket, or NOWHERE
+    private final int[] next;       // Next entity in the same bucket, or NOWHERE
+    private final int[] previous;
+    private final int[] cells;      // Cell each entity is on, or NOWHERE before it is placed
+    private final int shift;
+    
+    public EntityGrid(int width, int capacity) {
+        this.width = width;
+        // At least twice as many buckets as entities, so most cells have a bucket to themselves
+        int bucketBits = Math.max(4, 33 - Integer.numberOfLeadingZeros(capacity));
+        this.shift = 32 - bucketBits;
+        this.buckets = new int[1 << bucketBits];
+        this.next = new int[capacity];
+        this.previous = new int[capacity];
+        this.cells = new int[capacity];
+        Arrays.fill(buckets, NOWHERE);
+        Arrays.fill(cells, NOWHERE);
+    }
+    
+    // Put an entity on a cell, taking it off the one it was on. Does nothing when it did not move.
+    public void place(int entity, int x, int y) {
+        int cell = y * width + x;
+        if (cells[entity] == cell) {
+            return;
+        }
+        if (cells[entity] != NOWHERE) {
+            unlink(entity);
+        }
+        int bucket = bucket(cell);
+        cells[entity] = cell;
+        previous[entity] = NOWHERE;
+        next[entity] = buckets[bucket];
+        if (buckets[bucket] != NOWHERE) {
+            previous[buckets[bucket]] = entity;
+        }
+        buckets[bucket] = entity;
+    }
+    
+    // First entity on a cell, or -1 when there is none. Walk the rest with next(entity):
+    // for (int e = grid.first(x, y); e >= 0; e = grid.next(e)) { ... }
+    public int first(int x, int y) {
+        int cell = y * width + x;
+        return skipTo(buckets[bucket(cell)], cell);
+    }
+    
+    // Next entity on the same cell as this one, or -1 when there is none
+    public int next(int entity) {
+        return skipTo(next[entity], cells[entity]);
+    }
+    
+    // Other cells can share a bucket; step over their entities
+    private int skipTo(int entity, int cell) {
+        while (entity != NOWHERE && cells[entity] != cell) {
+            entity = next[entity];
+        }
+        return entity;
+    }
+    
+    private void unlink(int entity) {
+        if (previous[entity] != NOWHERE) {
+            next[previous[entity]] = next[entity];
+        } else {
+            buckets[bucket(cells[entity])] = next[entity];
+        }
+        if (next[entity] != NOWHERE) {
+            previous[next[entity]] = previous[entity];
+        }
+    }
+    
+    // Fibonacci hashing; neighbouring cells land far apart
+    private int bucket(int cell) {
+        return (cell * 0x9E3779B9) >>> shift;
+    }
+}
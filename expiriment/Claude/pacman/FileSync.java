@@ -0,0 +1,22 @@
+package pacman;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Durability helpers shared by the files the game replaces by writing a temp file and renaming it over the old one
+public class FileSync {
+    private FileSync() {
+    }
+    
+    // Makes a rename in the directory durable. Some platforms (Windows) can't open a directory; there the
+    // rename is as durable as the file system makes it on its own.
+    public static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // Not supported here
+        }
+    }
+}
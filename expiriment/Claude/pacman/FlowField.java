@@ -0,0 +1,148 @@
+package pacman;
+
+// Flow field - distance from every cell around a target to the target, shared by every ghost heading there.
+// It is only rebuilt, with one reverse BFS from the target, when the target cell or the maze's walls change;
+// each ghost then just walks downhill, so a tick costs the same however many ghosts there are. The BFS is
+// resumed on demand and stops at the farthest ghost that asked, so a few nearby ghosts don't pay for the
+// whole window. On mazes larger than FIELD_SIZE the field covers a window centred on the target; a ghost
+// outside it, or one the window can't vouch for because a path leaving it could be shorter, is handed to the
+// maze's BFS pathfinder, whose windows grow until the step is a shortest one.
+public class FlowField {
+    public static final int FIELD_SIZE = 2 * GridPathfinder.MAX_WINDOW;
+    
+    private final Maze maze;
+    private final int width;        // Window size; the whole maze when it fits
+    private final int height;
+    private final boolean wrapWithin; // Tunnels can be followed inside the window
+    private final boolean wholeMaze;
+    private final int[] distances;  // Steps to the target, valid where visited holds the current generation
+    private final int[] visited;
+    private final int[] queue;      // Local x in the low 16 bits and y in the high 16, saving a division per cell
+    private int head;               // BFS queue, kept between calls so the search can be resumed
+    private int tail;
+    private int generation = 0;
+    private int originX;            // Maze position of the window's top left cell
+    private int originY;
+    private int targetX = -1;
+    private int targetY = -1;
+    private int layoutVersion = -1; // Maze walls the field was built for
+    private boolean reachable;      // False when the target is a wall, so nothing leads to it
+    private int rebuilds = 0;
+    
+    public FlowField(Maze maze) {
+        this.maze = maze;
+        this.width = Math.min(maze.getWidth(), FIELD_SIZE);
+        this.height = Math.min(maze.getHeight(), FIELD_SIZE);
+        this.wrapWithin = width == maze.getWidth();
+        this.wholeMaze = wrapWithin && height == maze.getHeight();
+        this.distances = new int[width * height];
+        this.visited = new int[width * height];
+        this.queue = new int[width * height];
+    }
+    
+    // First step from a cell down the field towards the target, or NONE when the cell is the target or
+    // cannot reach it
+    public Direction nextStep(int x, int y, int toX, int toY) {
+        if (toX != targetX || toY != targetY || maze.getLayoutVersion() != layoutVersion) {
+            rebuild(toX, toY);
+        }
+        if (!reachable || (x == toX && y == toY)) {
+            return Direction.NONE;
+        }
+        int localX = x - originX;
+        int localY = y - originY;
+        if (localX < 0 || localX >= width || localY < 0 || localY >= height) {
+            return handOff(x, y, toX, toY);
+        }
+        int cell = localX + localY * width;
+        while (visited[cell] != generation && head < tail) {
+            expandNext();
+        }
+        if (!wholeMaze && (visited[cell] != generation || distances[cell] > GridPathfinder.shortestOutside(maze,
+                originX, originY, width, height, x, y, toX, toY))) {
+            return handOff(x, y, toX, toY);
+        }
+        if (visited[cell] != generation) {
+            return Direction.NONE;
+        }
+        
+        // Any neighbour one step closer will do; take the first in the usual direction order
+        int open = maze.openNeighbors(x, y);
+        for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+            if ((open & (1 << d)) == 0) {
+                continue;
+            }
+            int next = localCell(localX + Grid.DX[d], localY + Grid.DY[d]);
+            if (next >= 0 && visited[next] == generation && distances[next] == distances[cell] - 1) {
+                return Grid.DIRECTIONS[d];
+            }
+        }
+        return Direction.NONE;
+    }
+    
+    // Number of times the field has been built, to check it is really shared
+    public int getRebuilds() {
+        return rebuilds;
+    }
+    
+    // Searches with the maze's BFS pathfinder; the field stays as it is for the ghosts it does cover
+    private Direction handOff(int x, int y, int toX, int toY) {
+        return maze.getPathfinder(PathfinderType.BFS).firstStep(x, y, toX, toY);
+    }
+    
+    private void rebuild(int toX, int toY) {
+        targetX = toX;
+        targetY = toY;
+        layoutVersion = maze.getLayoutVersion();
+        rebuilds++;
+        generation++;
+        originX = Math.max(0, Math.min(maze.getWidth() - width, toX - width / 2));
+        originY = Math.max(0, Math.min(maze.getHeight() - height, toY - height / 2));
+        reachable = !maze.isWall(toX, toY);
+        head = 0;
+        tail = 0;
+        if (!reachable) {
+            return;
+        }
+        int target = (toX - originX) + (toY - originY) * width;
+        visited[target] = generation;
+        distances[target] = 0;
+        queue[tail++] = (toX - originX) | (toY - originY) << 16;
+    }
+    
+    // One more step of the BFS. A cell's distance is final once it is reached, and so are those of all its
+    // neighbours one step closer, so a ghost can follow the field as soon as its own cell is reached.
+    private void expandNext() {
+        int localX = queue[head] & 0xFFFF;
+        int localY = queue[head++] >>> 16;
+        int cell = localX + localY * width;
+        int open = maze.openNeighbors(originX + localX, originY + localY);
+        for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+            if ((open & (1 << d)) == 0) {
+                continue;
+            }
+            int nextX = wrapWithin ? maze.wrapX(localX + Grid.DX[d]) : localX + Grid.DX[d];
+            int nextY = localY + Grid.DY[d];
+            if (nextX < 0 || nextX >= width || nextY < 0 || nextY >= height) {
+                continue;
+            }
+            int next = nextX + nextY * width;
+            if (visited[next] != generation) {
+                visited[next] = generation;
+                distances[next] = distances[cell] + 1;
+                queue[tail++] = nextX | nextY << 16;
+            }
+        }
+    }
+    
+    // Window cell of a local position, wrapping through tunnels when the window spans the maze; -1 outside
+    private int localCell(int localX, int localY) {
+        if (wrapWithin) {
+            localX = maze.wrapX(localX);
+        }
+        if (localX < 0 || localX >= width || localY < 0 || localY >= height) {
+            return -1;
+        }
+        return localX + localY * width;
+    }
+}
@@ -0,0 +1,333 @@
+package pacman;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// Game - the whole simulation (maze, Pac-Man, ghosts, scoring, lives, win/lose) with no UI.
+// Call step once per tick; it runs just as well headless as behind the Swing window.
+public class Game {
+    public static final int GRID_WIDTH = 28;
+    public static final int GRID_HEIGHT = 31;
+    public static final int TICKS_PER_SECOND = 60;
+    // Bumped whenever a change makes the same seed and inputs play out differently, so recordings made
+    // before it are refused instead of replayed wrong. 2: ghosts decide only at junctions, and a Pac-Man
+    // and a ghost swapping cells in one tick always meet. 3: INCREMENTAL ghosts follow their target as it moves.
+    // 4: ghosts too far from their target for a windowed search find their way over the whole maze, and
+    // each ghost type searches with its own backend.
+    public static final int SIMULATION_VERSION = 4;
+    
+    private static final int STARTING_LIVES = 3;
+    private static final int PELLET_POINTS = 10;
+    private static final int POWER_PELLET_POINTS = 50;
+    private static final int GHOST_POINTS = 200;
+    private static final int VULNERABLE_TICKS = 10 * TICKS_PER_SECOND; // 10 seconds for vulnerable ghosts
+    // Above this many ghosts per Pac-Man one shared flow field beats a graph search per ghost
+    private static final int SHARED_FIELD_GHOSTS = 16;
+    private static final Ghost.GhostType[] GHOST_TYPES = {
+        Ghost.GhostType.BLINKY, Ghost.GhostType.PINKY, Ghost.GhostType.INKY, Ghost.GhostType.CLYDE
+    };
+    
+    // Every default game starts from a copy of this one, sharing its path table
+    private static final Maze STANDARD_MAZE = new Maze(GRID_WIDTH, GRID_HEIGHT);
+    
+    private final Maze maze;
+    private final long seed;
+    private final GameRandom random; // Every random choice in the game comes from here
+    private final PacMan pacMan;     // The first of pacMen, the one the player steers
+    private final List<PacMan> pacMen;
+    private final List<Ghost> ghosts;
+    private final EntityGrid pacManGrid; // Pac-Men by cell, numbered as in pacMen
+    private int score = 0;
+    private int lives = STARTING_LIVES;
+    private int pelletsEaten = 0;
+    private long tick = 0;
+    private boolean gameOver = false;
+    private boolean gameWon = false;
+    
+    public Game() {
+        this(newStandardMaze());
+    }
+    
+    // Picks a seed at random; getSeed() tells which, so the game can still be told apart and replayed
+    public Game(Maze maze) {
+        this(maze, new Random().nextLong());
+    }
+    
+    // Same maze, seed and inputs give the same game
+    public Game(Maze maze, long seed) {
+        this(maze, seed, 1, GHOST_TYPES.length);
+    }
+    
+    // Swarm game: any number of Pac-Men and ghosts. Ghosts take turns at the four personalities and start
+    // cells, and each hunts one Pac-Man, taking them in turn.
+    public Game(Maze maze, long seed, int pacManCount, int ghostCount) {
+        this.maze = maze;
+        this.seed = seed;
+        this.random = new GameRandom(seed);
+        
+        List<PacMan> pacManList = new ArrayList<>();
+        for (int i = 0; i < pacManCount; i++) {
+            pacManList.add(new PacMan(maze.getPacManStartX(), maze.getPacManStartY(), maze));
+        }
+        this.pacMen = Collections.unmodifiableList(pacManList);
+        this.pacMan = pacMen.get(0);
+        
+        FlowField[] chaseFields = newFlowFields();
+        FlowField[] aheadFields = newFlowFields();
+        List<Ghost> ghostList = new ArrayList<>();
+        for (int i = 0; i < ghostCount; i++) {
+            int start = i % GHOST_TYPES.length;
+            int hunted = i % pacManCount;
+            ghostList.add(new Ghost(maze.getGhostStartX(start), maze.getGhostStartY(start), GHOST_TYPES[start],
+                    maze, pacMen.get(hunted), chaseFields[hunted], aheadFields[hunted], random));
+        }
+        this.ghosts = Collections.unmodifiableList(ghostList);
+        this.pacManGrid = newPacManGrid();
+        if (ghostCount > SHARED_FIELD_GHOSTS * pacManCount) {
+            setGhostPathfinder(PathfinderType.FLOW_FIELD);
+        }
+    }
+    
+    // Independent copy of a game in progress, e.g. a replay keyframe. Given the same inputs it plays on
+    // exactly as the original does.
+    public Game(Game other) {
+        this.maze = new Maze(other.maze);
+        this.seed = other.seed;
+        this.random = other.random.copy();
+        
+        List<PacMan> pacManList = new ArrayList<>();
+        for (PacMan otherPacMan : other.pacMen) {
+            pacManList.add(new PacMan(otherPacMan, maze));
+        }
+        this.pacMen = Collections.unmodifiableList(pacManList);
+        this.pacMan = pacMen.get(0);
+        
+        FlowField[] chaseFields = newFlowFields();
+        FlowField[] aheadFields = newFlowFields();
+        List<Ghost> ghostList = new ArrayList<>();
+        for (int i = 0; i < other.ghosts.size(); i++) {
+            int hunted = i % pacMen.size();
+            ghostList.add(new Ghost(other.ghosts.get(i), maze, pacMen.get(hunted), chaseFields[hunted],
+                    aheadFields[hunted], random));
+        }
+        this.ghosts = Collections.unmodifiableList(ghostList);
+        this.pacManGrid = newPacManGrid();
+        
+        this.score = other.score;
+        this.lives = other.lives;
+        this.pelletsEaten = other.pelletsEaten;
+        this.tick = other.tick;
+        this.gameOver = other.gameOver;
+        this.gameWon = other.gameWon;
+    }
+    
+    // One field per Pac-Man; they are only built once a ghost follows them
+    private FlowField[] newFlowFields() {
+        FlowField[] fields = new FlowField[pacMen.size()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = new FlowField(maze);
+        }
+        return fields;
+    }
+    
+    private EntityGrid newPacManGrid() {
+        EntityGrid grid = new EntityGrid(maze.getWidth(), pacMen.size());
+        for (int i = 0; i < pacMen.size(); i++) {
+            grid.place(i, pacMen.get(i).getX(), pacMen.get(i).getY());
+        }
+        return grid;
+    }
+    
+    // Advance one tick. input is the direction Pac-Man should turn to when he can, or NONE to
+    // carry on as before. Returns the GameEvent mask of everything that happened.
+    public int step(Direction input) {
+        if (input != Direction.NONE) {
+            pacMan.setNextDirection(input);
+        }
+        return advance();
+    }
+    
+    // Advance one tick of a swarm game, with one input for each Pac-Man
+    public int step(Direction[] inputs) {
+        for (int i = 0; i < inputs.length; i++) {
+            if (inputs[i] != Direction.NONE) {
+                pacMen.get(i).setNextDirection(inputs[i]);
+            }
+        }
+        return advance();
+    }
+    
+    private int advance() {
+        if (gameOver || gameWon) {
+            return 0;
+        }
+        tick++;
+        int events = 0;
+        
+        // Update Pac-Men
+        for (int i = 0; i < pacMen.size(); i++) {
+            PacMan movingPacMan = pacMen.get(i);
+            movingPacMan.move();
+            int x = movingPacMan.getX();
+            int y = movingPacMan.getY();
+            pacManGrid.place(i, x, y);
+            
+            // Check for pellet collection
+            if (maze.hasPellet(x, y)) {
+                maze.eatPellet(x, y);
+                pelletsEaten++;
+                events |= GameEvent.EAT_PELLET.mask() | addScore(PELLET_POINTS);
+            }
+            
+            // Check for power pellet collection
+            if (maze.hasPowerPellet(x, y)) {
+                maze.eatPowerPellet(x, y);
+                makeGhostsVulnerable();
+                events |= GameEvent.EAT_POWER_PELLET.mask() | addScore(POWER_PELLET_POINTS);
+            }
+            if (gameWon) {
+                return events;
+            }
+        }
+        
+        // Update ghosts
+        for (Ghost ghost : ghosts) {
+            ghost.move();
+            
+            // Check for collision with Pac-Man
+            if (caughtPacMan(ghost) >= 0) {
+                if (ghost.isVulnerable()) {
+                    // Eat the ghost; it goes back to the house, to the start picked by where it was caught
+                    int start = (ghost.getX() & 1) | (ghost.getY() & 1) << 1;
+                    ghost.reset(maze.getGhostStartX(start), maze.getGhostStartY(start));
+                    ghost.setVulnerable(false, 0);
+                    events |= GameEvent.EAT_GHOST.mask() | addScore(GHOST_POINTS);
+                    if (gameWon) {
+                        return events;
+                    }
+                } else {
+                    // Pac-Man loses a life
+                    return events | loseLife();
+                }
+            }
+        }
+        return events;
+    }
+    
+    // Index of a Pac-Man the ghost has met this tick, or -1. They meet by ending up on the same cell, or by
+    // swapping cells, which passes them through each other without ever sharing one.
+    private int caughtPacMan(Ghost ghost) {
+        int met = pacManGrid.first(ghost.getX(), ghost.getY());
+        if (met >= 0) {
+            return met;
+        }
+        for (int i = pacManGrid.first(ghost.getPrevX(), ghost.getPrevY()); i >= 0; i = pacManGrid.next(i)) {
+            PacMan other = pacMen.get(i);
+            if (other.getPrevX() == ghost.getX() && other.getPrevY() == ghost.getY()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    private int addScore(int points) {
+        score += points;
+        // Check if all pellets are eaten
+        if (maze.getRemainingPellets() == 0) {
+            gameWon = true;
+            return GameEvent.WIN.mask();
+        }
+        return 0;
+    }
+    
+    private int loseLife() {
+        lives--;
+        if (lives <= 0) {
+            gameOver = true;
+            return GameEvent.GAME_OVER.mask();
+        }
+        resetPositions();
+        return GameEvent.LOSE_LIFE.mask();
+    }
+    
+    private void resetPositions() {
+        for (int i = 0; i < pacMen.size(); i++) {
+            pacMen.get(i).reset(maze.getPacManStartX(), maze.getPacManStartY());
+            pacManGrid.place(i, maze.getPacManStartX(), maze.getPacManStartY());
+        }
+        for (int i = 0; i < ghosts.size(); i++) {
+            int start = i % GHOST_TYPES.length;
+            ghosts.get(i).reset(maze.getGhostStartX(start), maze.getGhostStartY(start));
+        }
+    }
+    
+    private void makeGhostsVulnerable() {
+        for (Ghost ghost : ghosts) {
+            ghost.setVulnerable(true, VULNERABLE_TICKS);
+        }
+    }
+    
+    // Make every ghost use the same search backend, e.g. to compare them on one maze
+    public void setGhostPathfinder(PathfinderType pathfinderType) {
+        for (Ghost ghost : ghosts) {
+            ghost.setPathfinderType(pathfinderType);
+        }
+    }
+    
+    // A fresh copy of the standard maze, sharing its path table
+    public static Maze newStandardMaze() {
+        return new Maze(STANDARD_MAZE);
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public Maze getMaze() {
+        return maze;
+    }
+    
+    public PacMan getPacMan() {
+        return pacMan;
+    }
+    
+    // Every Pac-Man; a normal game has just the one getPacMan returns
+    public List<PacMan> getPacMen() {
+        return pacMen;
+    }
+    
+    public List<Ghost> getGhosts() {
+        return ghosts;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int getLives() {
+        return lives;
+    }
+    
+    public int getPelletsEaten() {
+        return pelletsEaten;
+    }
+    
+    public long getTick() {
+        return tick;
+    }
+    
+    public boolean isGameOver() {
+        return gameOver;
+    }
+    
+    public boolean isGameWon() {
+        return gameWon;
+    }
+    
+    // True once the game has been won or lost; step does nothing after that
+    public boolean isFinished() {
+        return gameOver || gameWon;
+    }
+}
@@ -0,0 +1,19 @@
+package pacman;
+
+// Things that happened during a tick, reported to the UI as bits of a mask so stepping allocates nothing
+public enum GameEvent {
+    EAT_PELLET,
+    EAT_POWER_PELLET,
+    EAT_GHOST,
+    LOSE_LIFE,
+    GAME_OVER,
+    WIN;
+    
+    public int mask() {
+        return 1 << ordinal();
+    }
+    
+    public boolean isIn(int events) {
+        return (events & mask()) != 0;
+    }
+}
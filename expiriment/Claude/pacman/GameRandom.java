@@ -0,0 +1,38 @@
+package pacman;
+
+import java.util.Random;
+
+// Random numbers for one game. Same generator as java.util.Random, so a seed plays out as it always has,
+// but its state can be copied, so a copied game goes on rolling exactly what the original would.
+public class GameRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+    
+    private long state; // Set by setSeed, which Random's constructor calls
+    
+    public GameRandom(long seed) {
+        super(seed);
+    }
+    
+    private GameRandom(GameRandom other) {
+        super(0);
+        this.state = other.state;
+    }
+    
+    public GameRandom copy() {
+        return new GameRandom(this);
+    }
+    
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        state = (seed ^ MULTIPLIER) & MASK;
+    }
+    
+    @Override
+    protected int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+}
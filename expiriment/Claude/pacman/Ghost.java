@@ -0,0 +1,358 @@
+package pacman;
+
+import java.util.Random;
+
+// Ghost class
+public class Ghost {
+    private int x, y;         // Grid position
+    private int prevX, prevY; // Grid position before the last move, for interpolation
+    private int startX, startY; // Starting position
+    private Direction currentDirection = Direction.UP;
+    private Maze maze;
+    private PacMan pacMan;
+    private FlowField chaseField; // Fields towards Pac-Man and towards the cells ahead of him, shared with
+    private FlowField aheadField; // every ghost hunting the same Pac-Man
+    private DStarLite chasePlanner; // This ghost's own searches towards the same targets, kept between
+    private DStarLite aheadPlanner; // ticks; made on first use
+    private GhostType type;
+    private boolean vulnerable = false;
+    private int vulnerableTicksLeft = 0;
+    private Random random;
+    private PathfinderType pathfinderType;
+    
+    public enum GhostType {
+        // Blinky heads straight for Pac-Man every tick, so repairing one search as he moves beats starting
+        // over; the others switch targets and search afresh, hierarchically for far ones
+        BLINKY(PathfinderType.INCREMENTAL),
+        PINKY(PathfinderType.HIERARCHICAL),
+        INKY(PathfinderType.HIERARCHICAL),
+        CLYDE(PathfinderType.HIERARCHICAL);
+        
+        private final PathfinderType pathfinderType;
+        
+        GhostType(PathfinderType pathfinderType) {
+            this.pathfinderType = pathfinderType;
+        }
+        
+        // Search backend used when the maze has no precomputed path table, unless the game picks one for all
+        public PathfinderType getPathfinderType() {
+            return pathfinderType;
+        }
+    }
+    
+    // Ghosts sharing one seeded Random make the same choices every run. Without a path table they use their
+    // type's search backend, or, once the game switches them over, follow the flow fields it shares between
+    // all ghosts hunting the same Pac-Man.
+    public Ghost(int x, int y, GhostType type, Maze maze, PacMan pacMan, FlowField chaseField,
+                 FlowField aheadField, Random random) {
+        this.x = x;
+        this.y = y;
+        this.startX = x;
+        this.startY = y;
+        this.prevX = x;
+        this.prevY = y;
+        this.type = type;
+        this.maze = maze;
+        this.pacMan = pacMan;
+        this.chaseField = chaseField;
+        this.aheadField = aheadField;
+        this.pathfinderType = type.getPathfinderType();
+        this.random = random;
+    }
+    
+    // Copy of another ghost for a copied game, chasing that game's Pac-Man with its random source
+    public Ghost(Ghost other, Maze maze, PacMan pacMan, FlowField chaseField, FlowField aheadField,
+                 Random random) {
+        this.x = other.x;
+        this.y = other.y;
+        this.prevX = other.prevX;
+        this.prevY = other.prevY;
+        this.startX = other.startX;
+        this.startY = other.startY;
+        this.currentDirection = other.currentDirection;
+        this.type = other.type;
+        this.vulnerable = other.vulnerable;
+        this.vulnerableTicksLeft = other.vulnerableTicksLeft;
+        this.pathfinderType = other.pathfinderType;
+        this.maze = maze;
+        this.pacMan = pacMan;
+        this.chaseField = chaseField;
+        this.aheadField = aheadField;
+        this.chasePlanner = other.chasePlanner == null ? null : new DStarLite(other.chasePlanner, maze);
+        this.aheadPlanner = other.aheadPlanner == null ? null : new DStarLite(other.aheadPlanner, maze);
+        this.random = random;
+    }
+    
+    public void move() {
+        prevX = x;
+        prevY = y;
+        
+        // Check if vulnerable time has expired
+        if (vulnerable && --vulnerableTicksLeft <= 0) {
+            vulnerable = false;
+        }
+        
+        // Choose direction based on ghost type and vulnerability. In a corridor there is only one way on
+        // besides turning back, so the AI only runs at junctions, dead ends and after a reset.
+        Direction newDirection;
+        int onward = maze.openNeighbors(x, y) & ~(1 << getOppositeDirection(currentDirection).ordinal());
+        if (Integer.bitCount(onward) == 1) {
+            newDirection = Grid.DIRECTIONS[Integer.numberOfTrailingZeros(onward)];
+        } else if (vulnerable) {
+            // When vulnerable, move randomly
+            newDirection = getRandomDirection();
+        } else {
+            // Use specific AI based on ghost type
+            switch (type) {
+                case BLINKY:
+                    // Blinky directly targets Pac-Man
+                    newDirection = moveTowardsPacMan();
+                    break;
+                case PINKY:
+                    // Pinky tries to move ahead of Pac-Man
+                    newDirection = moveAheadOfPacMan();
+                    break;
+                case INKY:
+                    // Inky uses a mix of strategies
+                    newDirection = moveInkyStyle();
+                    break;
+                case CLYDE:
+                    // Clyde moves randomly unless close to Pac-Man, then moves away
+                    newDirection = moveClydeStyle();
+                    break;
+                default:
+                    newDirection = getRandomDirection();
+            }
+        }
+        
+        // If we can move in the new direction, do so
+        if (canMove(newDirection)) {
+            currentDirection = newDirection;
+        } else if (!canMove(currentDirection)) {
+            if (maze.openNeighbors(x, y) == 0) {
+                return; // Shut in, e.g. by doors closing on both sides; wait for one to open
+            }
+            // If we can't move in current direction, try a random one
+            Direction randomDir = getRandomDirection();
+            while (!canMove(randomDir)) {
+                randomDir = getRandomDirection();
+            }
+            currentDirection = randomDir;
+        }
+        
+        // Move in current direction
+        switch (currentDirection) {
+            case UP:
+                y--;
+                break;
+            case DOWN:
+                y++;
+                break;
+            case LEFT:
+                x--;
+                break;
+            case RIGHT:
+                x++;
+                break;
+        }
+        x = maze.wrapX(x);
+    }
+    
+    private Direction moveTowardsPacMan() {
+        // Simple BFS implementation for Blinky
+        return findPathToPacMan();
+    }
+    
+    private Direction moveAheadOfPacMan() {
+        // Pinky tries to be ahead of Pac-Man by 4 tiles
+        int targetX = pacMan.getX();
+        int targetY = pacMan.getY();
+        
+        // Adjust target based on Pac-Man's direction
+        switch (pacMan.getDirection()) {
+            case UP:
+                targetY -= 4;
+                break;
+            case DOWN:
+                targetY += 4;
+                break;
+            case LEFT:
+                targetX -= 4;
+                break;
+            case RIGHT:
+                targetX += 4;
+                break;
+        }
+        
+        // Make sure target is within bounds
+        targetX = Math.max(0, Math.min(maze.getWidth() - 1, targetX));
+        targetY = Math.max(0, Math.min(maze.getHeight() - 1, targetY));
+        
+        if (pathfinderType == PathfinderType.INCREMENTAL && aheadPlanner == null) {
+            aheadPlanner = new DStarLite(maze);
+        }
+        return findPathToTarget(targetX, targetY, aheadField, aheadPlanner);
+    }
+    
+    private Direction moveInkyStyle() {
+        // With 50% chance, chase directly; otherwise, move ahead like Pinky
+        if (random.nextBoolean()) {
+            return moveTowardsPacMan();
+        } else {
+            return moveAheadOfPacMan();
+        }
+    }
+    
+    private Direction moveClydeStyle() {
+        // Calculate Manhattan distance to Pac-Man
+        int distance = Math.abs(x - pacMan.getX()) + Math.abs(y - pacMan.getY());
+        
+        // If close to Pac-Man, move away; otherwise, move randomly
+        if (distance < 8) {
+            // Move away from Pac-Man
+            int dx = x - pacMan.getX();
+            int dy = y - pacMan.getY();
+            
+            if (Math.abs(dx) > Math.abs(dy)) {
+                // Move horizontally away
+                return dx > 0 ? Direction.RIGHT : Direction.LEFT;
+            } else {
+                // Move vertically away
+                return dy > 0 ? Direction.DOWN : Direction.UP;
+            }
+        } else {
+            // Move randomly
+            return getRandomDirection();
+        }
+    }
+    
+    private Direction findPathToPacMan() {
+        if (pathfinderType == PathfinderType.INCREMENTAL && chasePlanner == null) {
+            chasePlanner = new DStarLite(maze);
+        }
+        return findPathToTarget(pacMan.getX(), pacMan.getY(), chaseField, chasePlanner);
+    }
+    
+    private Direction findPathToTarget(int targetX, int targetY, FlowField field, DStarLite planner) {
+        // Look up the first step in the maze's precomputed table, or follow the shared field, repair our
+        // own search or search afresh if the maze has none
+        PathOracle oracle = maze.getPathOracle();
+        Direction direction;
+        if (oracle != null) {
+            direction = oracle.nextStep(x, y, targetX, targetY);
+        } else if (pathfinderType == PathfinderType.FLOW_FIELD) {
+            direction = field.nextStep(x, y, targetX, targetY);
+        } else if (pathfinderType == PathfinderType.INCREMENTAL) {
+            direction = planner.nextStep(x, y, targetX, targetY);
+        } else {
+            direction = maze.getPathfinder(pathfinderType).firstStep(x, y, targetX, targetY);
+        }
+        
+        // If no path found, return random direction
+        if (direction == Direction.NONE) {
+            return getRandomDirection();
+        }
+        return direction;
+    }
+    
+    private Direction getRandomDirection() {
+        Direction oppositeDir = getOppositeDirection(currentDirection);
+        
+        Direction newDir;
+        do {
+            newDir = Grid.DIRECTIONS[random.nextInt(Grid.DIRECTIONS.length)];
+            // Avoid going backwards
+        } while (newDir == oppositeDir && canMove(currentDirection));
+        
+        return newDir;
+    }
+    
+    private Direction getOppositeDirection(Direction direction) {
+        switch (direction) {
+            case UP:
+                return Direction.DOWN;
+            case DOWN:
+                return Direction.UP;
+            case LEFT:
+                return Direction.RIGHT;
+            case RIGHT:
+                return Direction.LEFT;
+            default:
+                return Direction.NONE;
+        }
+    }
+    
+    private boolean canMove(Direction direction) {
+        int newX = x;
+        int newY = y;
+        
+        switch (direction) {
+            case UP:
+                newY--;
+                break;
+            case DOWN:
+                newY++;
+                break;
+            case LEFT:
+                newX--;
+                break;
+            case RIGHT:
+                newX++;
+                break;
+        }
+        
+        // Check if the new position is valid (not a wall)
+        return !maze.isWall(maze.wrapX(newX), newY);
+    }
+    
+    public int getX() {
+        return x;
+    }
+    
+    public int getY() {
+        return y;
+    }
+    
+    public int getPrevX() {
+        return prevX;
+    }
+    
+    public int getPrevY() {
+        return prevY;
+    }
+    
+    public GhostType getType() {
+        return type;
+    }
+    
+    // Vulnerability is counted in game ticks, so it lasts the same however fast the game runs
+    public void setVulnerable(boolean vulnerable, int durationTicks) {
+        this.vulnerable = vulnerable;
+        this.vulnerableTicksLeft = vulnerable ? durationTicks : 0;
+    }
+    
+    public int getVulnerableTicksLeft() {
+        return vulnerableTicksLeft;
+    }
+    
+    public boolean isVulnerable() {
+        return vulnerable;
+    }
+    
+    public void setPathfinderType(PathfinderType pathfinderType) {
+        this.pathfinderType = pathfinderType;
+    }
+    
+    public PathfinderType getPathfinderType() {
+        return pathfinderType;
+    }
+    
+    public void reset(int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.prevX = x;
+        this.prevY = y;
+        this.vulnerable = false;
+        this.currentDirection = Direction.UP;
+    }
+}
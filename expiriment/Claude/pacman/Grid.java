@@ -0,0 +1,39 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Tables and small helpers shared by everything that walks the maze's cells. Directions are always taken in
+// this order, so searches break ties between equally short paths the same way, and it is the order of the
+// bits in Maze.openNeighbors and of the steps stored in path tables and recordings.
+class Grid {
+    static final Direction[] DIRECTIONS = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+    static final int[] DX = {0, 0, -1, 1};
+    static final int[] DY = {-1, 1, 0, 0};
+    
+    private Grid() {
+    }
+    
+    // Manhattan distance between two cell indices (x + y * width), the short way round when tunnels wrap
+    // across that width
+    static int manhattan(int a, int b, int width, boolean wraps) {
+        int dx = Math.abs(a % width - b % width);
+        if (wraps) {
+            dx = Math.min(dx, width - dx);
+        }
+        return dx + Math.abs(a / width - b / width);
+    }
+    
+    // Stamp for the next search over arrays that hold one stamp per cell or node, so nothing needs clearing
+    // between searches. Once the counter wraps around old stamps could look current again, so then the arrays
+    // are cleared and counting starts over at 1.
+    static int nextGeneration(int generation, int[]... stamps) {
+        generation++;
+        if (generation == 0) {
+            for (int[] stamp : stamps) {
+                Arrays.fill(stamp, 0);
+            }
+            generation = 1;
+        }
+        return generation;
+    }
+}
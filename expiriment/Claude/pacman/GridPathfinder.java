@@ -0,0 +1,170 @@
+package pacman;
+
+// Base class for pathfinders working on cell indices (x + y * width) within a search window. Mazes up to
+// MAX_WINDOW cells a side are searched whole. On bigger ones the window is placed around the start and
+// target for each search, so the arrays stay small and a search never wanders off into far chunks. When
+// the pair doesn't fit, or a path leaving the window or going through the tunnels could beat the one found
+// inside it, the search is handed to a pathfinder of the same kind with a window twice the size, up to
+// the whole maze; so the step is always that of a shortest path.
+abstract class GridPathfinder implements Pathfinder {
+    public static final int MAX_WINDOW = Maze.CHUNK_SIZE;
+    
+    protected static final byte NO_STEP = -1;
+    
+    protected final Maze maze;
+    protected final int width;  // Window size; the whole maze when it fits
+    protected final int height;
+    private final int window;
+    private final boolean wholeMaze;
+    private GridPathfinder wider;   // Same search over a window twice the size, made on first need
+    private int originX;        // Maze position of the window's top left cell
+    private int originY;
+    protected final int[] visited;  // Generation stamp per cell, so nothing needs clearing between searches
+    protected int generation = 0;
+    protected int expandedNodes;
+    protected int pathLength;       // Steps of the path search found
+    
+    protected GridPathfinder(Maze maze, int window) {
+        this.maze = maze;
+        this.window = window;
+        this.width = Math.min(maze.getWidth(), window);
+        this.height = Math.min(maze.getHeight(), window);
+        this.wholeMaze = width == maze.getWidth() && height == maze.getHeight();
+        this.visited = new int[width * height];
+    }
+    
+    @Override
+    public Direction firstStep(int fromX, int fromY, int toX, int toY) {
+        expandedNodes = 0;
+        if (maze.isWall(fromX, fromY) || maze.isWall(toX, toY) || (fromX == toX && fromY == toY)) {
+            return Direction.NONE;
+        }
+        if (!wholeMaze) {
+            int dx = Math.abs(toX - fromX);
+            int dy = Math.abs(toY - fromY);
+            if (dx >= width || dy >= height) {
+                return searchWider(fromX, fromY, toX, toY);
+            }
+            // Centre the pair in the window, keeping the window inside the maze
+            originX = Math.max(0, Math.min(maze.getWidth() - width, Math.min(fromX, toX) - (width - 1 - dx) / 2));
+            originY = Math.max(0, Math.min(maze.getHeight() - height, Math.min(fromY, toY) - (height - 1 - dy) / 2));
+        }
+        int start = (fromX - originX) + (fromY - originY) * width;
+        int target = (toX - originX) + (toY - originY) * width;
+        
+        nextGeneration();
+        int step = search(start, target);
+        if (!wholeMaze && (step == NO_STEP
+                || pathLength > shortestOutside(maze, originX, originY, width, height, fromX, fromY, toX, toY))) {
+            return searchWider(fromX, fromY, toX, toY);
+        }
+        return step == NO_STEP ? Direction.NONE : Grid.DIRECTIONS[step];
+    }
+    
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+    
+    // Returns the index into Grid.DIRECTIONS of the first step from start to target, or NO_STEP. When there is
+    // a step, pathLength is the length of the path it starts.
+    protected abstract int search(int start, int target);
+    
+    // A pathfinder of the same kind over a window of the given size
+    protected abstract GridPathfinder withWindow(int window);
+    
+    // Hands the search to the next wider window; the work done here still counts
+    private Direction searchWider(int fromX, int fromY, int toX, int toY) {
+        if (wider == null) {
+            wider = withWindow(2 * window);
+        }
+        Direction direction = wider.firstStep(fromX, fromY, toX, toY);
+        expandedNodes += wider.getExpandedNodes();
+        return direction;
+    }
+    
+    // No path that leaves a window or goes through a tunnel can be shorter than this. Leaving past one
+    // side costs a detour of twice the distance from the nearer of the pair to just beyond that side;
+    // a tunnel has to be reached from the start and left again towards the target.
+    static int shortestOutside(Maze maze, int originX, int originY, int width, int height,
+                               int fromX, int fromY, int toX, int toY) {
+        int direct = Math.abs(toX - fromX) + Math.abs(toY - fromY);
+        int bound = Integer.MAX_VALUE;
+        if (originX > 0) {
+            bound = Math.min(bound, direct + 2 * (Math.min(fromX, toX) - originX + 1));
+        }
+        if (originX + width < maze.getWidth()) {
+            bound = Math.min(bound, direct + 2 * (originX + width - Math.max(fromX, toX)));
+        }
+        if (originY > 0) {
+            bound = Math.min(bound, direct + 2 * (Math.min(fromY, toY) - originY + 1));
+        }
+        if (originY + height < maze.getHeight()) {
+            bound = Math.min(bound, direct + 2 * (originY + height - Math.max(fromY, toY)));
+        }
+        if (maze.wrapsTunnels()) {
+            int last = maze.getWidth() - 1;
+            bound = Math.min(bound, Math.min(fromX, last - fromX) + 1 + Math.min(toX, last - toX)
+                    + Math.abs(toY - fromY));
+        }
+        return bound;
+    }
+    
+    // Cell reached by stepping from a cell in a direction, or -1 if that is a wall or outside the window
+    protected int neighbor(int cell, int direction) {
+        int newX = wrapX(cell % width + Grid.DX[direction]);
+        int newY = cell / width + Grid.DY[direction];
+        if (newX < 0 || newX >= width || newY < 0 || newY >= height || maze.isWall(originX + newX, originY + newY)) {
+            return -1;
+        }
+        return newX + newY * width;
+    }
+    
+    // Like neighbor, for a direction already known to be open
+    protected int openNeighbor(int cell, int direction) {
+        return wrapX(cell % width + Grid.DX[direction]) + (cell / width + Grid.DY[direction]) * width;
+    }
+    
+    // Open directions from a cell as a mask like Maze.openNeighbors, without those leaving the window
+    protected int openDirections(int cell) {
+        int x = cell % width;
+        int y = cell / width;
+        int open = maze.openNeighbors(originX + x, originY + y);
+        if (!wholeMaze) {
+            if (y == 0) {
+                open &= ~1;
+            }
+            if (y == height - 1) {
+                open &= ~2;
+            }
+            if (x == 0) {
+                open &= ~4;
+            }
+            if (x == width - 1) {
+                open &= ~8;
+            }
+        }
+        return open;
+    }
+    
+    // Tunnels only wrap when the window spans the whole maze
+    private int wrapX(int x) {
+        return wholeMaze ? maze.wrapX(x) : x;
+    }
+    
+    // Manhattan distance, taking the short way round through wrapping tunnels
+    protected int heuristic(int cell, int target) {
+        return Grid.manhattan(cell, target, width, wholeMaze && maze.wrapsTunnels());
+    }
+    
+    private void nextGeneration() {
+        generation = Grid.nextGeneration(generation, visited);
+        if (generation == 1) {
+            onGenerationReset();
+        }
+    }
+    
+    // Subclasses with their own stamp arrays clear them here, when counting starts (over) at 1
+    protected void onGenerationReset() {
+    }
+}
@@ -0,0 +1,176 @@
+package pacman;
+
+// Hierarchical pathfinder (HPA*) - for pairs too far apart for one search window. The start and target are
+// joined to the entrances of their clusters with a BFS inside each cluster, then A* runs over the entrances of
+// the ClusterGraph; only the first hop is refined back to a step on the cells. Pairs within the window are
+// handed to the junction pathfinder, which is exact and cheaper up close. Cost grows with the number of
+// clusters between the pair rather than with the size of the maze. Every run of open cells across a border is
+// an entrance, so the search is not capped: a pair gets no way only when none exists.
+class HierarchicalPathfinder implements Pathfinder {
+    
+    private final Maze maze;
+    private ClusterGraph graph;
+    private CellHeap open;
+    private int[] visited;        // Generation stamps, as in GridPathfinder
+    private int[] closed;
+    private int[] costs;
+    private int[] parents;        // Previous entrance on the best known path, or -1 for one next to the start
+    private int generation = 0;
+    private int expandedNodes;
+    private final int[] startDistances = new int[ClusterGraph.LOCAL_CELLS];
+    private final byte[] startSteps = new byte[ClusterGraph.LOCAL_CELLS];
+    private final int[] targetDistances = new int[ClusterGraph.LOCAL_CELLS];
+    private final int[] clusterNodes = new int[ClusterGraph.SLOTS];
+    private int target;            // Cell index (x + y * width) of the target, for the heuristic
+    
+    public HierarchicalPathfinder(Maze maze) {
+        this.maze = maze;
+    }
+    
+    @Override
+    public Direction firstStep(int fromX, int fromY, int toX, int toY) {
+        if (Math.abs(toX - fromX) < GridPathfinder.MAX_WINDOW && Math.abs(toY - fromY) < GridPathfinder.MAX_WINDOW) {
+            Pathfinder nearby = maze.getPathfinder(PathfinderType.JUNCTION);
+            Direction direction = nearby.firstStep(fromX, fromY, toX, toY);
+            expandedNodes = nearby.getExpandedNodes();
+            return direction;
+        }
+        expandedNodes = 0;
+        if (maze.isWall(fromX, fromY) || maze.isWall(toX, toY)) {
+            return Direction.NONE;
+        }
+        if (graph == null || !graph.catchUp()) {
+            rebuild();
+        }
+        nextGeneration();
+        target = toX + toY * maze.getWidth();
+        
+        int width = maze.getWidth();
+        int from = fromX + fromY * width;
+        int to = toX + toY * width;
+        int startCluster = graph.clusterOf(from);
+        int targetCluster = graph.clusterOf(to);
+        graph.search(from, startDistances, startSteps);
+        graph.search(to, targetDistances, null);
+        
+        // Start from every entrance of the start's cluster it can reach
+        open.clear();
+        int startNodes = graph.getClusterNodes(startCluster, clusterNodes);
+        for (int i = 0; i < startNodes; i++) {
+            int node = clusterNodes[i];
+            int distance = startDistances[graph.localCell(graph.getNodeCell(node))];
+            if (distance >= 0) {
+                relax(node, distance, -1);
+            }
+        }
+        
+        int bestCost = Integer.MAX_VALUE;
+        int bestNode = -1;
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (closed[node] == generation) {
+                continue; // Stale heap entry
+            }
+            int cost = costs[node];
+            if (cost + heuristic(node) >= bestCost) {
+                break;
+            }
+            closed[node] = generation;
+            expandedNodes++;
+            
+            int cell = graph.getNodeCell(node);
+            int cluster = graph.clusterOf(cell);
+            if (cluster == targetCluster) {
+                int rest = targetDistances[graph.localCell(cell)];
+                if (rest >= 0 && cost + rest < bestCost) {
+                    bestCost = cost + rest;
+                    bestNode = node;
+                }
+            }
+            
+            // Across the border, or to another entrance of the same cluster
+            int partner = graph.getPartner(node);
+            if (closed[partner] != generation) {
+                relax(partner, cost + 1, node);
+            }
+            int slot = graph.getSlot(node);
+            int count = graph.getClusterNodes(cluster, clusterNodes);
+            for (int i = 0; i < count; i++) {
+                int next = clusterNodes[i];
+                if (next == node || closed[next] == generation) {
+                    continue;
+                }
+                int step = graph.getCost(cluster, slot, graph.getSlot(next));
+                if (step >= 0) {
+                    relax(next, cost + step, node);
+                }
+            }
+        }
+        if (bestNode < 0) {
+            return Direction.NONE;
+        }
+        
+        // Refine: head for the first entrance on the path that is not the start itself
+        int first = bestNode;
+        int second = -1;
+        while (parents[first] >= 0) {
+            second = first;
+            first = parents[first];
+        }
+        int waypoint = graph.getNodeCell(first) != from || second < 0 ? first : second;
+        int waypointCell = graph.getNodeCell(waypoint);
+        if (graph.clusterOf(waypointCell) == startCluster) {
+            int step = startSteps[graph.localCell(waypointCell)];
+            return step < 0 ? Direction.NONE : Grid.DIRECTIONS[step];
+        }
+        return directionTo(fromX, fromY, waypointCell % width, waypointCell / width);
+    }
+    
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+    
+    // Direction of the step onto a neighbouring cell, possibly through a wrapping tunnel
+    private Direction directionTo(int x, int y, int nextX, int nextY) {
+        if (nextY != y) {
+            return nextY < y ? Direction.UP : Direction.DOWN;
+        }
+        int dx = nextX - x;
+        if (Math.abs(dx) > 1) {
+            dx = -dx;
+        }
+        return dx < 0 ? Direction.LEFT : Direction.RIGHT;
+    }
+    
+    // Queue a node at a cost, unless it is already queued for less
+    private void relax(int node, int cost, int parent) {
+        if (visited[node] == generation && costs[node] <= cost) {
+            return;
+        }
+        visited[node] = generation;
+        costs[node] = cost;
+        parents[node] = parent;
+        open.push(node, cost + heuristic(node));
+    }
+    
+    // Manhattan distance from an entrance to the target, the short way round through wrapping tunnels
+    private int heuristic(int node) {
+        return Grid.manhattan(graph.getNodeCell(node), target, maze.getWidth(), maze.wrapsTunnels());
+    }
+    
+    private void rebuild() {
+        graph = new ClusterGraph(maze);
+        int nodes = graph.getNodeCount();
+        open = new CellHeap(1024);
+        visited = new int[nodes];
+        closed = new int[nodes];
+        costs = new int[nodes];
+        parents = new int[nodes];
+        generation = 0;
+    }
+    
+    private void nextGeneration() {
+        generation = Grid.nextGeneration(generation, visited, closed);
+    }
+}
@@ -0,0 +1,148 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Jump point search - A* that jumps along straight lines and only stops where the path could turn
+class JumpPointPathfinder extends GridPathfinder {
+    private static final int UP = 0;
+    private static final int DOWN = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+    
+    private final CellHeap open;
+    private final int[] closed;
+    private final int[] costs;
+    private final int[] parents;
+    private final byte[] arrivals;   // Direction of the jump that reached each jump point
+    private int target;
+    private int jumpLength;
+    
+    public JumpPointPathfinder(Maze maze) {
+        this(maze, MAX_WINDOW);
+    }
+    
+    private JumpPointPathfinder(Maze maze, int window) {
+        super(maze, window);
+        int cells = width * height;
+        this.open = new CellHeap(Math.min(4 * cells, 4 * MAX_WINDOW * MAX_WINDOW) + 1);
+        this.closed = new int[cells];
+        this.costs = new int[cells];
+        this.parents = new int[cells];
+        this.arrivals = new byte[cells];
+    }
+    
+    @Override
+    protected int search(int start, int target) {
+        this.target = target;
+        open.clear();
+        visited[start] = generation;
+        costs[start] = 0;
+        parents[start] = -1;
+        arrivals[start] = NO_STEP;
+        open.push(start, heuristic(start, target));
+        
+        while (!open.isEmpty()) {
+            int cell = open.pop();
+            if (closed[cell] == generation) {
+                continue; // Stale heap entry
+            }
+            if (cell == target) {
+                pathLength = costs[cell];
+                // Walk back to the jump point right after the start; its jump direction is our first step
+                while (parents[cell] != start) {
+                    cell = parents[cell];
+                }
+                return arrivals[cell];
+            }
+            closed[cell] = generation;
+            expandedNodes++;
+            
+            int arrival = arrivals[cell];
+            if (arrival == NO_STEP) {
+                for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                    jumpFrom(cell, d);
+                }
+            } else if (arrival == LEFT || arrival == RIGHT) {
+                // Horizontal moves continue straight and only turn where a vertical neighbour is forced
+                jumpFrom(cell, arrival);
+                int back = neighbor(cell, arrival == LEFT ? RIGHT : LEFT);
+                if (neighbor(cell, UP) >= 0 && (back < 0 || neighbor(back, UP) < 0)) {
+                    jumpFrom(cell, UP);
+                }
+                if (neighbor(cell, DOWN) >= 0 && (back < 0 || neighbor(back, DOWN) < 0)) {
+                    jumpFrom(cell, DOWN);
+                }
+            } else {
+                // Vertical moves may turn either way
+                jumpFrom(cell, arrival);
+                jumpFrom(cell, LEFT);
+                jumpFrom(cell, RIGHT);
+            }
+        }
+        return NO_STEP;
+    }
+    
+    private void jumpFrom(int cell, int direction) {
+        int jumpPoint = direction == LEFT || direction == RIGHT
+                ? jumpHorizontal(cell, direction)
+                : jumpVertical(cell, direction);
+        if (jumpPoint < 0 || closed[jumpPoint] == generation) {
+            return;
+        }
+        int cost = costs[cell] + jumpLength;
+        if (visited[jumpPoint] == generation && costs[jumpPoint] <= cost) {
+            return;
+        }
+        visited[jumpPoint] = generation;
+        costs[jumpPoint] = cost;
+        parents[jumpPoint] = cell;
+        arrivals[jumpPoint] = (byte) direction;
+        open.push(jumpPoint, cost + heuristic(jumpPoint, target));
+    }
+    
+    // Scan sideways until the target, a forced vertical neighbour, or a wall; sets jumpLength
+    private int jumpHorizontal(int cell, int direction) {
+        int current = cell;
+        // A fully open wrapping row would otherwise be scanned forever
+        for (int steps = 1; steps <= width; steps++) {
+            int next = neighbor(current, direction);
+            if (next < 0) {
+                return -1;
+            }
+            if (next == target
+                    || (neighbor(next, UP) >= 0 && neighbor(current, UP) < 0)
+                    || (neighbor(next, DOWN) >= 0 && neighbor(current, DOWN) < 0)) {
+                jumpLength = steps;
+                return next;
+            }
+            current = next;
+        }
+        return -1;
+    }
+    
+    // Scan up or down, stopping wherever a sideways scan would find something; sets jumpLength
+    private int jumpVertical(int cell, int direction) {
+        int current = cell;
+        for (int steps = 1; ; steps++) {
+            int next = neighbor(current, direction);
+            if (next < 0) {
+                return -1;
+            }
+            if (next == target || jumpHorizontal(next, LEFT) >= 0 || jumpHorizontal(next, RIGHT) >= 0) {
+                jumpLength = steps;
+                return next;
+            }
+            current = next;
+        }
+    }
+    
+    @Override
+    protected GridPathfinder withWindow(int window) {
+        return new JumpPointPathfinder(maze, window);
+    }
+    
+    @Override
+    protected void onGenerationReset() {
+        Arrays.fill(closed, 0);
+    }
+}
@@ -0,0 +1,199 @@
+package pacman;
+
+import java.util.Arrays;
+
+// Junction graph - the maze compiled down to its decision points. Every open cell with other than two ways
+// out is a node; the one-wide corridors between them become weighted edges. Corridor cells remember their
+// edge and how far along it they are, so any cell can be placed on the graph in O(1). Immutable once built,
+// so copies of a maze share it like the path table.
+public class JunctionGraph {
+    private static final int[] OPPOSITES = {1, 0, 3, 2}; // Index of the reverse of each direction
+    
+    private final Maze maze;
+    private final int width;
+    private final int[] edgeOfCell;   // Edge a corridor cell lies on; -1 for nodes and walls
+    private final int[] indexOfCell;  // Node number of a node cell, or steps from the edge's A end of a corridor cell
+    private int[] nodeCells;
+    private int[] nodeEdges;          // [node * 4 + direction], edge leaving the node that way, or -1
+    private int[] edgeA;
+    private int[] edgeB;
+    private int[] edgeLengths;        // Steps from A to B
+    private byte[] edgeDirA;          // Direction leaving A along the edge
+    private byte[] edgeDirB;          // Direction leaving B along the edge
+    private int nodeCount = 0;
+    private int edgeCount = 0;
+    
+    public JunctionGraph(Maze maze) {
+        this.maze = maze;
+        this.width = maze.getWidth();
+        int cells = width * maze.getHeight();
+        edgeOfCell = new int[cells];
+        indexOfCell = new int[cells];
+        Arrays.fill(edgeOfCell, -1);
+        Arrays.fill(indexOfCell, -1);
+        
+        // Room for the worst case while building, trimmed at the end
+        nodeCells = new int[cells];
+        nodeEdges = new int[4 * cells];
+        edgeA = new int[2 * cells];
+        edgeB = new int[2 * cells];
+        edgeLengths = new int[2 * cells];
+        edgeDirA = new byte[2 * cells];
+        edgeDirB = new byte[2 * cells];
+        Arrays.fill(nodeEdges, -1);
+        
+        // Nodes first: dead ends, junctions and anything else that is not a plain corridor
+        for (int cell = 0; cell < cells; cell++) {
+            int x = cell % width;
+            int y = cell / width;
+            if (!maze.isWall(x, y) && Integer.bitCount(maze.openNeighbors(x, y)) != 2) {
+                addNode(cell);
+            }
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            walkCorridors(node);
+        }
+        
+        // Loops with no junction on them are still unreached; give each a node of its own
+        for (int cell = 0; cell < cells; cell++) {
+            if (indexOfCell[cell] < 0 && !maze.isWall(cell % width, cell / width)) {
+                walkCorridors(addNode(cell));
+            }
+        }
+        
+        nodeCells = Arrays.copyOf(nodeCells, nodeCount);
+        nodeEdges = Arrays.copyOf(nodeEdges, 4 * nodeCount);
+        edgeA = Arrays.copyOf(edgeA, edgeCount);
+        edgeB = Arrays.copyOf(edgeB, edgeCount);
+        edgeLengths = Arrays.copyOf(edgeLengths, edgeCount);
+        edgeDirA = Arrays.copyOf(edgeDirA, edgeCount);
+        edgeDirB = Arrays.copyOf(edgeDirB, edgeCount);
+    }
+    
+    private int addNode(int cell) {
+        indexOfCell[cell] = nodeCount;
+        nodeCells[nodeCount] = cell;
+        return nodeCount++;
+    }
+    
+    // Follow each way out of a node that is not on an edge yet to the node at the other end
+    private void walkCorridors(int node) {
+        int start = nodeCells[node];
+        int open = maze.openNeighbors(start % width, start / width);
+        for (int d = 0; d < 4; d++) {
+            if ((open & (1 << d)) == 0 || nodeEdges[node * 4 + d] >= 0) {
+                continue;
+            }
+            int edge = edgeCount++;
+            int direction = d;
+            int at = step(start, d);
+            int length = 1;
+            while (indexOfCell[at] < 0) {
+                edgeOfCell[at] = edge;
+                indexOfCell[at] = length++;
+                int onward = maze.openNeighbors(at % width, at / width) & ~(1 << OPPOSITES[direction]);
+                direction = Integer.numberOfTrailingZeros(onward);
+                at = step(at, direction);
+            }
+            int other = indexOfCell[at];
+            edgeA[edge] = node;
+            edgeB[edge] = other;
+            edgeLengths[edge] = length;
+            edgeDirA[edge] = (byte) d;
+            edgeDirB[edge] = (byte) OPPOSITES[direction];
+            nodeEdges[node * 4 + d] = edge;
+            nodeEdges[other * 4 + OPPOSITES[direction]] = edge;
+        }
+    }
+    
+    // Cell one step from another, through wrapping tunnels; the way must be open
+    private int step(int cell, int direction) {
+        return maze.wrapX(cell % width + Grid.DX[direction]) + (cell / width + Grid.DY[direction]) * width;
+    }
+    
+    // Direction (index into Direction.values()) of the first step from a corridor cell towards the A or B end
+    // of its edge
+    public int directionAlong(int cell, boolean towardsA) {
+        int edge = edgeOfCell[cell];
+        int wanted = indexOfCell[cell] + (towardsA ? -1 : 1);
+        int wantedCell = -1;
+        if (wanted == 0) {
+            wantedCell = nodeCells[edgeA[edge]];
+        } else if (wanted == edgeLengths[edge]) {
+            wantedCell = nodeCells[edgeB[edge]];
+        }
+        int open = maze.openNeighbors(cell % width, cell / width);
+        for (int d = 0; d < 4; d++) {
+            if ((open & (1 << d)) == 0) {
+                continue;
+            }
+            int next = step(cell, d);
+            if (wantedCell >= 0 ? next == wantedCell : edgeOfCell[next] == edge && indexOfCell[next] == wanted) {
+                return d;
+            }
+        }
+        return -1;
+    }
+    
+    // Cell index x + y * width, as used by the methods below
+    public int cellOf(int x, int y) {
+        return x + y * width;
+    }
+    
+    // Node on a cell, or -1 when the cell is a corridor or a wall
+    public int nodeAt(int cell) {
+        return edgeOfCell[cell] < 0 ? indexOfCell[cell] : -1;
+    }
+    
+    // Edge a corridor cell lies on, or -1 for node cells and walls
+    public int edgeAt(int cell) {
+        return edgeOfCell[cell];
+    }
+    
+    // Steps from the A end of its edge to a corridor cell
+    public int offsetAt(int cell) {
+        return indexOfCell[cell];
+    }
+    
+    public int getNodeCell(int node) {
+        return nodeCells[node];
+    }
+    
+    // Edge leaving a node in a direction (index into Direction.values()), or -1
+    public int getEdge(int node, int direction) {
+        return nodeEdges[node * 4 + direction];
+    }
+    
+    public int getEdgeA(int edge) {
+        return edgeA[edge];
+    }
+    
+    public int getEdgeB(int edge) {
+        return edgeB[edge];
+    }
+    
+    public int getEdgeLength(int edge) {
+        return edgeLengths[edge];
+    }
+    
+    public int getEdgeDirA(int edge) {
+        return edgeDirA[edge];
+    }
+    
+    public int getEdgeDirB(int edge) {
+        return edgeDirB[edge];
+    }
+    
+    // Node at the other end of an edge leaving a node in a direction; the node itself for a loop
+    public int otherEnd(int edge, int node, int direction) {
+        return edgeA[edge] == node && edgeDirA[edge] == direction ? edgeB[edge] : edgeA[edge];
+    }
+    
+    public int getNodeCount() {
+        return nodeCount;
+    }
+    
+    public int getEdgeCount() {
+        return edgeCount;
+    }
+}
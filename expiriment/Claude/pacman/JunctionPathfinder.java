@@ -0,0 +1,152 @@
+package pacman;
+
+// Junction pathfinder - A* over the maze's junction graph instead of its cells. A corridor is crossed in one
+// edge however long it is, so a search expands junctions only. Start and target may sit in corridors; they
+// are hooked onto both ends of theirs. The graph spans the whole maze, so the search is exact at any
+// distance; mazes too big for a graph fall back to A* on cells.
+class JunctionPathfinder implements Pathfinder {
+    private static final byte NO_STEP = -1;
+    
+    private final Maze maze;
+    private JunctionGraph graph;  // Graph the arrays below are sized for
+    private CellHeap open;
+    private int[] visited;        // Generation stamps, as in GridPathfinder
+    private int[] closed;
+    private int[] costs;
+    private byte[] firstSteps;
+    private int generation = 0;
+    private int expandedNodes;
+    private int target; // Cell index (x + y * width) of the target, for the heuristic
+    
+    public JunctionPathfinder(Maze maze) {
+        this.maze = maze;
+    }
+    
+    @Override
+    public Direction firstStep(int fromX, int fromY, int toX, int toY) {
+        JunctionGraph current = maze.getJunctionGraph();
+        if (current == null) {
+            Pathfinder fallback = maze.getPathfinder(PathfinderType.A_STAR);
+            Direction direction = fallback.firstStep(fromX, fromY, toX, toY);
+            expandedNodes = fallback.getExpandedNodes();
+            return direction;
+        }
+        expandedNodes = 0;
+        if (maze.isWall(fromX, fromY) || maze.isWall(toX, toY) || (fromX == toX && fromY == toY)) {
+            return Direction.NONE;
+        }
+        if (current != graph) {
+            resize(current);
+        }
+        nextGeneration();
+        target = toX + toY * maze.getWidth();
+        
+        int from = graph.cellOf(fromX, fromY);
+        int to = graph.cellOf(toX, toY);
+        int targetNode = graph.nodeAt(to);
+        int targetEdge = graph.edgeAt(to);
+        int bestCost = Integer.MAX_VALUE;
+        int bestStep = NO_STEP;
+        
+        // Seed the search with the start's node, or both ends of its corridor
+        open.clear();
+        int startEdge = graph.edgeAt(from);
+        if (startEdge < 0) {
+            relax(graph.nodeAt(from), 0, NO_STEP);
+        } else {
+            int offset = graph.offsetAt(from);
+            int length = graph.getEdgeLength(startEdge);
+            int towardsA = graph.directionAlong(from, true);
+            int towardsB = graph.directionAlong(from, false);
+            relax(graph.getEdgeA(startEdge), offset, towardsA);
+            relax(graph.getEdgeB(startEdge), length - offset, towardsB);
+            if (startEdge == targetEdge) {
+                // Straight along the shared corridor, unless going round turns out shorter
+                int targetOffset = graph.offsetAt(to);
+                bestCost = Math.abs(targetOffset - offset);
+                bestStep = targetOffset < offset ? towardsA : towardsB;
+            }
+        }
+        
+        while (!open.isEmpty()) {
+            int node = open.pop();
+            if (closed[node] == generation) {
+                continue; // Stale heap entry
+            }
+            if (costs[node] + heuristic(node) >= bestCost) {
+                break;
+            }
+            closed[node] = generation;
+            expandedNodes++;
+            
+            // Reaching the target, or an end of its corridor, gives a candidate path
+            int cost = costs[node];
+            if (node == targetNode) {
+                bestCost = cost;
+                bestStep = firstSteps[node];
+                break;
+            }
+            if (targetEdge >= 0) {
+                int targetOffset = graph.offsetAt(to);
+                if (node == graph.getEdgeA(targetEdge) && cost + targetOffset < bestCost) {
+                    bestCost = cost + targetOffset;
+                    bestStep = firstSteps[node] == NO_STEP ? graph.getEdgeDirA(targetEdge) : firstSteps[node];
+                }
+                int rest = graph.getEdgeLength(targetEdge) - targetOffset;
+                if (node == graph.getEdgeB(targetEdge) && cost + rest < bestCost) {
+                    bestCost = cost + rest;
+                    bestStep = firstSteps[node] == NO_STEP ? graph.getEdgeDirB(targetEdge) : firstSteps[node];
+                }
+            }
+            
+            for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                int edge = graph.getEdge(node, d);
+                if (edge < 0) {
+                    continue;
+                }
+                int next = graph.otherEnd(edge, node, d);
+                if (closed[next] != generation) {
+                    relax(next, cost + graph.getEdgeLength(edge), firstSteps[node] == NO_STEP ? d : firstSteps[node]);
+                }
+            }
+        }
+        return bestStep == NO_STEP ? Direction.NONE : Grid.DIRECTIONS[bestStep];
+    }
+    
+    @Override
+    public int getExpandedNodes() {
+        return expandedNodes;
+    }
+    
+    // Queue a node at a cost, unless it is already queued for less
+    private void relax(int node, int cost, int firstStep) {
+        if (visited[node] == generation && costs[node] <= cost) {
+            return;
+        }
+        visited[node] = generation;
+        costs[node] = cost;
+        firstSteps[node] = (byte) firstStep;
+        open.push(node, cost + heuristic(node));
+    }
+    
+    // Manhattan distance from a node to the target, the short way round through wrapping tunnels. Every edge is
+    // at least as long as that between its ends, so the estimate never overshoots.
+    private int heuristic(int node) {
+        return Grid.manhattan(graph.getNodeCell(node), target, maze.getWidth(), maze.wrapsTunnels());
+    }
+    
+    private void resize(JunctionGraph current) {
+        graph = current;
+        int nodes = current.getNodeCount();
+        open = new CellHeap(4 * nodes + 2);
+        visited = new int[nodes];
+        closed = new int[nodes];
+        costs = new int[nodes];
+        firstSteps = new byte[nodes];
+        generation = 0;
+    }
+    
+    private void nextGeneration() {
+        generation = Grid.nextGeneration(generation, visited, closed);
+    }
+}
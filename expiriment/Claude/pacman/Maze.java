@@ -0,0 +1,449 @@
+package pacman;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Maze class
+public class Maze {
+    // Bitboards are split into square chunks stored one after another, one long per chunk row: cell (x, y) is
+    // bit x & 63 of word wordIndex(x, y). A chunk is 512 contiguous bytes, so it can be copied, compared or
+    // drawn on its own, and a huge maze only costs work where something is going on.
+    public static final int CHUNK_SHIFT = 6;
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    
+    private int width;
+    private int height;
+    private int chunkColumns;
+    private int chunkRows;
+    private long[] walls;
+    private long[] pellets;
+    private long[] powerPellets;
+    private int remainingPellets;
+    private int[] chunkVersions;   // Bumped on every change to a chunk, so copies know when they are stale
+    private int layoutVersion = 0; // Bumped when walls or tunnels change, so cached paths know when they are stale
+    private int[] wallChanges = new int[WALL_CHANGE_LOG]; // Cell each recent layout change was at, -1 for tunnels
+    private PathOracle pathOracle;
+    private JunctionGraph junctionGraph;
+    private Map<PathfinderType, Pathfinder> pathfinders = new EnumMap<>(PathfinderType.class);
+    private boolean pathOracleEnabled = true;
+    private boolean wallsEdited = false; // Walls were set one by one since the layout was built
+    private boolean tunnelsWrap = false;
+    private int pacManStartX;
+    private int pacManStartY;
+    private int[][] ghostStarts;   // {x, y} for each ghost, inside the ghost house
+    
+    // Above this many cells the all-pairs table gets too big to keep in memory
+    private static final int MAX_ORACLE_CELLS = 2048;
+    // The junction graph keeps two ints per cell; above this many cells searches stay on the cells
+    private static final int MAX_GRAPH_CELLS = 1 << 20;
+    // Layout changes remembered for incremental planners; one further behind has to start over
+    private static final int WALL_CHANGE_LOG = 64;
+    
+    // Where every maze gets its path table, or null to build each one in place
+    private static volatile PathOracleCache pathOracleCache;
+    
+    public Maze(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.chunkColumns = chunksAcross(width);
+        this.chunkRows = chunksAcross(height);
+        this.walls = new long[chunkColumns * chunkRows << CHUNK_SHIFT];
+        this.pellets = new long[walls.length];
+        this.powerPellets = new long[walls.length];
+        this.chunkVersions = new int[chunkColumns * chunkRows];
+        
+        initializeMaze();
+        
+        // Precompute ghost pathfinding once the walls are known
+        getPathOracle();
+    }
+    
+    // Fresh copy of another maze's walls and pellets. The path table is immutable, so it is shared
+    // rather than rebuilt; that makes starting many games on the same layout cheap.
+    public Maze(Maze other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.chunkColumns = other.chunkColumns;
+        this.chunkRows = other.chunkRows;
+        this.walls = other.walls.clone();
+        this.pellets = other.pellets.clone();
+        this.powerPellets = other.powerPellets.clone();
+        this.chunkVersions = other.chunkVersions.clone();
+        this.layoutVersion = other.layoutVersion;
+        this.wallChanges = other.wallChanges.clone();
+        this.remainingPellets = other.remainingPellets;
+        this.pathOracleEnabled = other.pathOracleEnabled;
+        this.wallsEdited = other.wallsEdited;
+        this.tunnelsWrap = other.tunnelsWrap;
+        this.pacManStartX = other.pacManStartX;
+        this.pacManStartY = other.pacManStartY;
+        this.ghostStarts = other.ghostStarts;
+        this.pathOracle = other.getPathOracle();
+        this.junctionGraph = other.junctionGraph;
+    }
+    
+    // A layout built elsewhere, e.g. by MazeGenerator, in the chunked layout. The path table is left to be
+    // built on first use.
+    Maze(int width, int height, long[] walls, long[] pellets, long[] powerPellets,
+         int pacManStartX, int pacManStartY, int[][] ghostStarts) {
+        this.width = width;
+        this.height = height;
+        this.chunkColumns = chunksAcross(width);
+        this.chunkRows = chunksAcross(height);
+        this.chunkVersions = new int[chunkColumns * chunkRows];
+        this.walls = walls;
+        this.pellets = pellets;
+        this.powerPellets = powerPellets;
+        this.remainingPellets = popCount(pellets);
+        this.pacManStartX = pacManStartX;
+        this.pacManStartY = pacManStartY;
+        this.ghostStarts = ghostStarts;
+    }
+    
+    private void initializeMaze() {
+        // Initialize with a standard Pac-Man maze layout
+        // 1 = Wall, 0 = Path, 2 = Power Pellet
+        int[][] mazeLayout = {
+            {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1},
+            {1,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,1},
+            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
+            {1,2,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,2,1},
+            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
+            {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
+            {1,0,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,0,1},
+            {1,0,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,0,1},
+            {1,0,0,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,0,0,1},
+            {1,1,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,1,1},
+            {1,1,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,1,1},
+            {1,1,1,1,1,1,0,1,1,0,0,0,0,0,0,0,0,0,0,1,1,0,1,1,1,1,1,1},
+            {1,1,1,1,1,1,0,1,1,0,1,1,1,0,0,1,1,1,0,1,1,0,1,1,1,1,1,1},
+            {0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0},
+            {1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1},
+            {1,1,1,1,1,1,0,1,1,0,0,0,0,0,0,0,0,0,0,1,1,0,1,1,1,1,1,1},
+            {1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1},
+            {1,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,1},
+            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
+            {1,0,1,1,1,1,0,1,1,1,1,1,0,1,1,0,1,1,1,1,1,0,1,1,1,1,0,1},
+            {1,2,0,0,1,1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1,1,0,0,2,1},
+            {1,1,1,0,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,0,1,1,1},
+            {1,1,1,0,1,1,0,1,1,0,1,1,1,1,1,1,1,1,0,1,1,0,1,1,0,1,1,1},
+            {1,0,0,0,0,0,0,1,1,0,0,0,0,1,0,0,0,0,0,1,1,0,0,0,0,0,0,1},
+            {1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1},
+            {1,0,1,1,1,1,1,1,1,1,1,1,0,1,1,0,1,1,1,1,1,1,1,1,1,1,0,1},
+            {1,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,0,1},
+            {1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1,1}
+        };
+        
+        // Convert the layout to our data structures
+        for (int y = 0; y < height && y < mazeLayout.length; y++) {
+            for (int x = 0; x < width && x < mazeLayout[y].length; x++) {
+                setBit(walls, x, y, mazeLayout[y][x] == 1);
+                setBit(pellets, x, y, mazeLayout[y][x] == 0);
+                setBit(powerPellets, x, y, mazeLayout[y][x] == 2);
+            }
+        }
+        
+        // Remove pellets from ghost house and Pac-Man starting position
+        for (int x = 13; x <= 14; x++) {
+            for (int y = 14; y <= 15; y++) {
+                setBit(pellets, x, y, false);
+            }
+        }
+        
+        // Remove pellet from Pac-Man's starting position
+        pacManStartX = 14;
+        pacManStartY = 23;
+        setBit(pellets, pacManStartX, pacManStartY, false);
+        ghostStarts = new int[][] {{13, 14}, {14, 14}, {13, 15}, {14, 15}};
+        
+        remainingPellets = popCount(pellets);
+    }
+    
+    public boolean isWall(int x, int y) {
+        // Check if coordinates are out of bounds
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return true;
+        }
+        return testBit(walls, x, y);
+    }
+    
+    // Walls of the 64 cells of row y from x & ~63 on, bit i for cell (x & ~63) + i, for code that works on
+    // whole rows of cells at once. Bits past the right edge mean nothing.
+    public long getWallWord(int x, int y) {
+        return walls[wordIndex(chunkColumns, x, y)];
+    }
+    
+    // Open directions around a cell as a mask with bit d set for Direction.values()[d];
+    // left and right neighbours usually share the cell's word, so this is a few reads
+    public int openNeighbors(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return 0;
+        }
+        int mask = 0;
+        if (y > 0 && !testBit(walls, x, y - 1)) {
+            mask |= 1;
+        }
+        if (y < height - 1 && !testBit(walls, x, y + 1)) {
+            mask |= 2;
+        }
+        int left = x > 0 ? x - 1 : (tunnelsWrap ? width - 1 : -1);
+        if (left >= 0 && !testBit(walls, left, y)) {
+            mask |= 4;
+        }
+        int right = x < width - 1 ? x + 1 : (tunnelsWrap ? 0 : -1);
+        if (right >= 0 && !testBit(walls, right, y)) {
+            mask |= 8;
+        }
+        return mask;
+    }
+    
+    public void setWall(int x, int y, boolean wall) {
+        if (x < 0 || x >= width || y < 0 || y >= height || isWall(x, y) == wall) {
+            return;
+        }
+        setBit(walls, x, y, wall);
+        wallsEdited = true;
+        chunkVersions[chunkIndex(x, y)]++;
+        wallChanges[layoutVersion & (WALL_CHANGE_LOG - 1)] = x + y * width;
+        layoutVersion++;
+        if (wall) {
+            eatPellet(x, y);
+            eatPowerPellet(x, y);
+        }
+        
+        // Path table and graph are stale now; rebuild them on next use
+        pathOracle = null;
+        junctionGraph = null;
+    }
+    
+    // Returns null when the table is disabled or the maze is too large for one
+    public PathOracle getPathOracle() {
+        if (!pathOracleEnabled || width * height > MAX_ORACLE_CELLS) {
+            return null;
+        }
+        if (pathOracle == null) {
+            // Layouts edited in play, e.g. by doors, seldom come back; keep them out of the cache
+            PathOracleCache cache = pathOracleCache;
+            pathOracle = cache != null && !wallsEdited ? cache.get(this) : new PathOracle(this);
+        }
+        return pathOracle;
+    }
+    
+    // Set before the first maze is made (the standard one is made when Game loads) for it to take effect
+    public static void setPathOracleCache(PathOracleCache cache) {
+        pathOracleCache = cache;
+    }
+    
+    // Hash of the size, tunnels and walls - the same for every maze with this layout however it was made
+    public long getLayoutHash() {
+        long hash = mix((long) width << 32 | height) ^ (tunnelsWrap ? 1 : 0);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += CHUNK_SIZE) {
+                int cells = Math.min(CHUNK_SIZE, width - x);
+                long inside = cells == CHUNK_SIZE ? -1L : (1L << cells) - 1;
+                hash = mix(hash ^ (getWallWord(x, y) & inside));
+            }
+        }
+        return hash;
+    }
+    
+    // MurmurHash3's 64-bit finalizer
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+    
+    // Returns null when the maze is too large for one
+    public JunctionGraph getJunctionGraph() {
+        if ((long) width * height > MAX_GRAPH_CELLS) {
+            return null;
+        }
+        if (junctionGraph == null) {
+            junctionGraph = new JunctionGraph(this);
+        }
+        return junctionGraph;
+    }
+    
+    // Mazes whose walls change often should search instead of rebuilding the table on every change
+    public void setPathOracleEnabled(boolean enabled) {
+        this.pathOracleEnabled = enabled;
+        if (!enabled) {
+            pathOracle = null;
+        }
+    }
+    
+    public Pathfinder getPathfinder(PathfinderType type) {
+        Pathfinder pathfinder = pathfinders.get(type);
+        if (pathfinder == null) {
+            switch (type) {
+                case BIT_BFS:
+                    pathfinder = new BitBfsPathfinder(this);
+                    break;
+                case A_STAR:
+                    pathfinder = new AStarPathfinder(this);
+                    break;
+                case JUMP_POINT:
+                    pathfinder = new JumpPointPathfinder(this);
+                    break;
+                case JUNCTION:
+                    pathfinder = new JunctionPathfinder(this);
+                    break;
+                case HIERARCHICAL:
+                    pathfinder = new HierarchicalPathfinder(this);
+                    break;
+                default:
+                    pathfinder = new BfsPathfinder(this);
+            }
+            pathfinders.put(type, pathfinder);
+        }
+        return pathfinder;
+    }
+    
+    // When enabled, walking off the left or right edge comes back in on the other side
+    public void setTunnelsWrap(boolean tunnelsWrap) {
+        this.tunnelsWrap = tunnelsWrap;
+        wallChanges[layoutVersion & (WALL_CHANGE_LOG - 1)] = -1;
+        layoutVersion++;
+        pathOracle = null;
+        junctionGraph = null;
+    }
+    
+    public boolean wrapsTunnels() {
+        return tunnelsWrap;
+    }
+    
+    public int wrapX(int x) {
+        if (!tunnelsWrap || (x >= 0 && x < width)) {
+            return x;
+        }
+        return ((x % width) + width) % width;
+    }
+    
+    public boolean hasPellet(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        return testBit(pellets, x, y);
+    }
+    
+    public boolean hasPowerPellet(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return false;
+        }
+        return testBit(powerPellets, x, y);
+    }
+    
+    public void eatPellet(int x, int y) {
+        if (hasPellet(x, y)) {
+            setBit(pellets, x, y, false);
+            remainingPellets--;
+            chunkVersions[chunkIndex(x, y)]++;
+        }
+    }
+    
+    public void eatPowerPellet(int x, int y) {
+        if (hasPowerPellet(x, y)) {
+            setBit(powerPellets, x, y, false);
+            chunkVersions[chunkIndex(x, y)]++;
+        }
+    }
+    
+    public int getWidth() {
+        return width;
+    }
+    
+    public int getHeight() {
+        return height;
+    }
+    
+    public int getPacManStartX() {
+        return pacManStartX;
+    }
+    
+    public int getPacManStartY() {
+        return pacManStartY;
+    }
+    
+    public int getGhostStartX(int ghost) {
+        return ghostStarts[ghost][0];
+    }
+    
+    public int getGhostStartY(int ghost) {
+        return ghostStarts[ghost][1];
+    }
+    
+    public int getRemainingPellets() {
+        return remainingPellets;
+    }
+    
+    public int getLayoutVersion() {
+        return layoutVersion;
+    }
+    
+    // Cell x + y * width whose wall flipped in the change that took the layout from a version to the next, or
+    // -1 when that change was to the tunnels or is too long ago to remember
+    public int getWallChange(int version) {
+        if (version < 0 || version >= layoutVersion || layoutVersion - version > WALL_CHANGE_LOG) {
+            return -1;
+        }
+        return wallChanges[version & (WALL_CHANGE_LOG - 1)];
+    }
+    
+    public int getChunkColumns() {
+        return chunkColumns;
+    }
+    
+    public int getChunkRows() {
+        return chunkRows;
+    }
+    
+    // Chunk number (x >> CHUNK_SHIFT) + (y >> CHUNK_SHIFT) * getChunkColumns()
+    public int getChunkVersion(int chunk) {
+        return chunkVersions[chunk];
+    }
+    
+    // Copies one chunk's rows into arrays laid out like this maze's bitboards
+    public void copyChunk(int chunk, long[] wallDest, long[] pelletDest, long[] powerPelletDest) {
+        int offset = chunk << CHUNK_SHIFT;
+        System.arraycopy(walls, offset, wallDest, offset, CHUNK_SIZE);
+        System.arraycopy(pellets, offset, pelletDest, offset, CHUNK_SIZE);
+        System.arraycopy(powerPellets, offset, powerPelletDest, offset, CHUNK_SIZE);
+    }
+    
+    // Chunks needed to cover this many cells along one side
+    public static int chunksAcross(int cells) {
+        return (cells + CHUNK_SIZE - 1) >> CHUNK_SHIFT;
+    }
+    
+    // Word holding cell (x, y) in a chunked bitboard whose rows are chunkColumns chunks wide; the cell is bit x
+    public static int wordIndex(int chunkColumns, int x, int y) {
+        return ((y >> CHUNK_SHIFT) * chunkColumns + (x >> CHUNK_SHIFT)) << CHUNK_SHIFT | (y & (CHUNK_SIZE - 1));
+    }
+    
+    private int chunkIndex(int x, int y) {
+        return (y >> CHUNK_SHIFT) * chunkColumns + (x >> CHUNK_SHIFT);
+    }
+    
+    private boolean testBit(long[] board, int x, int y) {
+        return (board[wordIndex(chunkColumns, x, y)] & (1L << x)) != 0;
+    }
+    
+    private void setBit(long[] board, int x, int y, boolean value) {
+        if (value) {
+            board[wordIndex(chunkColumns, x, y)] |= 1L << x;
+        } else {
+            board[wordIndex(chunkColumns, x, y)] &= ~(1L << x);
+        }
+    }
+    
+    private static int popCount(long[] board) {
+        int count = 0;
+        for (long word : board) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+}
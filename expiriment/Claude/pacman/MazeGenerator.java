@@ -0,0 +1,361 @@
+package pacman;
+
+import java.util.Random;
+
+// Maze generator - random Pac-Man style mazes of any size: mirror-symmetric left to right, fully connected,
+// no dead ends, a ghost house in the middle, wrapping side tunnels and a power pellet near each corner.
+//
+// Corridors run through a lattice of junction cells at odd (x, y). The left half is carved as a random
+// spanning tree of that lattice (Kruskal with union-find), then every junction left with one way out gets
+// another, and the result is mirrored. Nothing is kept between calls, so one generator can be shared.
+public class MazeGenerator {
+    public static final int MIN_WIDTH = 7;
+    public static final int MIN_HEIGHT = 9;
+    
+    private final int width;
+    private final int height;
+    private final int tunnels;
+    private final int chunkColumns;
+    
+    // Junction lattice of the left half. The last column is the middle one when width % 4 == 3, and then
+    // mirrors onto itself; otherwise it faces its mirror across the seam in the middle.
+    private final int columns;
+    private final int rows;
+    private final boolean middleColumn;
+    private final int houseColumn; // First lattice column of the ghost house
+    private final int houseRow;    // The house covers this lattice row and the next
+    
+    public MazeGenerator(int width, int height) {
+        this(width, height, 1);
+    }
+    
+    public MazeGenerator(int width, int height, int tunnels) {
+        if (width < MIN_WIDTH || height < MIN_HEIGHT) {
+            throw new IllegalArgumentException("Maze must be at least " + MIN_WIDTH + "x" + MIN_HEIGHT);
+        }
+        this.width = width;
+        this.height = height;
+        this.chunkColumns = Maze.chunksAcross(width);
+        this.columns = ((width - 1) / 2 + 1) / 2;
+        this.rows = (height - 1) / 2;
+        this.middleColumn = width == 4 * columns - 1;
+        this.houseColumn = middleColumn ? columns - 2 : columns - 1;
+        this.houseRow = (rows - 1) / 2;
+        // Tunnels need a row of their own, away from the top and bottom and clear of the house
+        this.tunnels = Math.max(0, Math.min(tunnels, rows - 2 - (houseRow + 1 < rows - 1 ? 2 : 1)));
+    }
+    
+    public Maze generate(long seed) {
+        Random random = new Random(seed);
+        int nodes = columns * rows;
+        
+        // Edge e joins node e / 3 to its right neighbour (e % 3 == 0), the one below (1), or its mirror (2)
+        boolean[] open = new boolean[nodes * 3];
+        int[] degree = new int[nodes];
+        int[] parent = new int[nodes];
+        for (int i = 0; i < nodes; i++) {
+            parent[i] = i;
+        }
+        
+        // The ghost house is one open block, so its edges are in before anything else
+        for (int c = houseColumn; c < columns; c++) {
+            for (int r = houseRow; r <= houseRow + 1; r++) {
+                int node = c + r * columns;
+                if (r == houseRow) {
+                    openEdge(node * 3 + 1, open, degree, parent);
+                }
+                if (c < columns - 1) {
+                    openEdge(node * 3, open, degree, parent);
+                } else if (!middleColumn) {
+                    openEdge(node * 3 + 2, open, degree, parent);
+                }
+            }
+        }
+        
+        // Kruskal: shuffled lattice edges, keeping each one that joins two separate pieces
+        int[] edges = new int[nodes * 2];
+        int edgeCount = 0;
+        for (int node = 0; node < nodes; node++) {
+            if (node % columns < columns - 1) {
+                edges[edgeCount++] = node * 3;
+            }
+            if (node / columns < rows - 1) {
+                edges[edgeCount++] = node * 3 + 1;
+            }
+        }
+        for (int i = edgeCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = edges[i];
+            edges[i] = edges[j];
+            edges[j] = swap;
+        }
+        for (int i = 0; i < edgeCount; i++) {
+            int edge = edges[i];
+            if (find(parent, edge / 3) != find(parent, otherEnd(edge))) {
+                openEdge(edge, open, degree, parent);
+            }
+        }
+        
+        // Tunnels leave from the outer column on rows clear of the house, counting towards that junction
+        boolean[] tunnelRows = new boolean[rows];
+        for (int placed = 0; placed < tunnels; ) {
+            int r = 1 + random.nextInt(rows - 2);
+            if (!tunnelRows[r] && (r < houseRow || r > houseRow + 1)) {
+                tunnelRows[r] = true;
+                degree[r * columns]++;
+                placed++;
+            }
+        }
+        
+        // A tree is all dead ends; give every junction with one way out a second one
+        int[] closed = new int[4];
+        for (int node = 0; node < nodes; node++) {
+            if (degree[node] >= 2) {
+                continue;
+            }
+            int choices = 0;
+            int c = node % columns;
+            int r = node / columns;
+            if (c > 0 && !open[(node - 1) * 3]) {
+                closed[choices++] = (node - 1) * 3;
+            }
+            if (c < columns - 1 && !open[node * 3]) {
+                closed[choices++] = node * 3;
+            }
+            if (c == columns - 1 && !middleColumn && !open[node * 3 + 2]) {
+                closed[choices++] = node * 3 + 2;
+            }
+            if (r > 0 && !open[(node - columns) * 3 + 1]) {
+                closed[choices++] = (node - columns) * 3 + 1;
+            }
+            if (r < rows - 1 && !open[node * 3 + 1]) {
+                closed[choices++] = node * 3 + 1;
+            }
+            openEdge(closed[random.nextInt(choices)], open, degree, parent);
+        }
+        
+        return build(open, tunnelRows);
+    }
+    
+    // Lays the chosen edges out as cells, mirrored onto the right half
+    private Maze build(boolean[] open, boolean[] tunnelRows) {
+        int words = Maze.chunksAcross(width) * Maze.chunksAcross(height) << Maze.CHUNK_SHIFT;
+        long[] walls = new long[words];
+        long[] pellets = new long[words];
+        long[] powerPellets = new long[words];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += Maze.CHUNK_SIZE) {
+                walls[word(x, y)] = rowMask(x);
+            }
+        }
+        
+        for (int node = 0; node < columns * rows; node++) {
+            int x = 2 * (node % columns) + 1;
+            int y = 2 * (node / columns) + 1;
+            carve(walls, x, y);
+            if (open[node * 3]) {
+                carve(walls, x + 1, y);
+            }
+            if (open[node * 3 + 1]) {
+                carve(walls, x, y + 1);
+            }
+            if (open[node * 3 + 2]) {
+                for (int seamX = x + 1; seamX < width - 1 - x; seamX++) {
+                    carve(walls, seamX, y);
+                }
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            if (tunnelRows[r]) {
+                carve(walls, 0, 2 * r + 1);
+            }
+        }
+        
+        // The house block is open all the way across, including any corners between its junctions
+        int houseLeft = 2 * houseColumn + 1;
+        int houseTop = 2 * houseRow + 1;
+        for (int y = houseTop; y <= houseTop + 2; y++) {
+            for (int x = houseLeft; x <= width - 1 - houseLeft; x++) {
+                carve(walls, x, y);
+            }
+        }
+        
+        // Pac-Man starts on the middle column halfway between the house and the bottom
+        int pacManX = width - 1 - (2 * (columns - 1) + 1);
+        int pacManY = 2 * ((houseRow + 2 + rows - 1) / 2) + 1;
+        int[][] ghostStarts = {
+            {houseLeft, houseTop}, {width - 1 - houseLeft, houseTop},
+            {houseLeft, houseTop + 1}, {width - 1 - houseLeft, houseTop + 1}
+        };
+        
+        // Pellets everywhere open except the house and Pac-Man's start; power pellets near the corners
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x += Maze.CHUNK_SIZE) {
+                pellets[word(x, y)] = ~walls[word(x, y)] & rowMask(x);
+            }
+        }
+        for (int y = houseTop; y <= houseTop + 2; y++) {
+            for (int x = houseLeft; x <= width - 1 - houseLeft; x++) {
+                clearBit(pellets, x, y);
+            }
+        }
+        clearBit(pellets, pacManX, pacManY);
+        int[] powerRows = {3, 2 * (rows - 2) + 1};
+        for (int y : powerRows) {
+            if (y < houseTop || y > houseTop + 2) {
+                for (int x : new int[] {1, width - 2}) {
+                    clearBit(pellets, x, y);
+                    powerPellets[word(x, y)] |= 1L << x;
+                }
+            }
+        }
+        
+        Maze maze = new Maze(width, height, walls, pellets, powerPellets, pacManX, pacManY, ghostStarts);
+        maze.setTunnelsWrap(true);
+        return maze;
+    }
+    
+    private void carve(long[] walls, int x, int y) {
+        clearBit(walls, x, y);
+        clearBit(walls, width - 1 - x, y);
+    }
+    
+    private void openEdge(int edge, boolean[] open, int[] degree, int[] parent) {
+        int from = edge / 3;
+        int to = otherEnd(edge);
+        open[edge] = true;
+        degree[from]++;
+        if (edge % 3 != 2) {
+            // The middle column also gets the mirrored copy of an edge coming in from the left
+            degree[to] += edge % 3 == 0 && middleColumn && to % columns == columns - 1 ? 2 : 1;
+        }
+        parent[find(parent, from)] = find(parent, to);
+    }
+    
+    private int otherEnd(int edge) {
+        int node = edge / 3;
+        switch (edge % 3) {
+            case 0:
+                return node + 1;
+            case 1:
+                return node + columns;
+            default:
+                return node;
+        }
+    }
+    
+    private static int find(int[] parent, int node) {
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]]; // Path halving
+            node = parent[node];
+        }
+        return node;
+    }
+    
+    private int word(int x, int y) {
+        return Maze.wordIndex(chunkColumns, x, y);
+    }
+    
+    // Bits of the cells inside the maze in the chunk row word starting at x
+    private long rowMask(int x) {
+        int cells = Math.min(Maze.CHUNK_SIZE, width - x);
+        return cells == Maze.CHUNK_SIZE ? -1L : (1L << cells) - 1;
+    }
+    
+    private void clearBit(long[] board, int x, int y) {
+        board[word(x, y)] &= ~(1L << x);
+    }
+    
+    // Checks a maze the way the generator promises it: symmetric, every open cell reachable from every other
+    // (one union-find pass over the cells) and no open cell with fewer than two ways out
+    public static boolean isValid(Maze maze) {
+        int width = maze.getWidth();
+        int height = maze.getHeight();
+        int[] parent = new int[width * height];
+        int firstOpen = -1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = x + y * width;
+                parent[cell] = cell;
+                if (maze.isWall(x, y)) {
+                    continue;
+                }
+                if (maze.isWall(width - 1 - x, y)) {
+                    return false;
+                }
+                int open = maze.openNeighbors(x, y);
+                if (Integer.bitCount(open) < 2) {
+                    return false;
+                }
+                // Join with the neighbours above and to the left, which are already numbered
+                if ((open & 1) != 0) {
+                    union(parent, cell, cell - width);
+                }
+                if ((open & 4) != 0 && x > 0) {
+                    union(parent, cell, cell - 1);
+                }
+                if ((open & 8) != 0 && x == width - 1) {
+                    union(parent, cell, y * width);
+                }
+                if (firstOpen < 0) {
+                    firstOpen = cell;
+                }
+            }
+        }
+        if (firstOpen < 0) {
+            return false;
+        }
+        
+        int root = find(parent, firstOpen);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (!maze.isWall(x, y) && find(parent, x + y * width) != root) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    private static void union(int[] parent, int a, int b) {
+        parent[find(parent, a)] = find(parent, b);
+    }
+    
+    // Usage: MazeGenerator [width] [height] [count]
+    // Prints the first maze, then generates and checks count more and reports how fast that went
+    public static void main(String[] args) {
+        int width = args.length > 0 ? Integer.parseInt(args[0]) : Game.GRID_WIDTH;
+        int height = args.length > 1 ? Integer.parseInt(args[1]) : Game.GRID_HEIGHT;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        MazeGenerator generator = new MazeGenerator(width, height);
+        
+        Maze sample = generator.generate(0);
+        StringBuilder picture = new StringBuilder();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (sample.isWall(x, y)) {
+                    picture.append('#');
+                } else if (sample.hasPowerPellet(x, y)) {
+                    picture.append('o');
+                } else if (sample.hasPellet(x, y)) {
+                    picture.append('.');
+                } else {
+                    picture.append(' ');
+                }
+            }
+            picture.append('\n');
+        }
+        System.out.print(picture);
+        
+        long start = System.nanoTime();
+        int invalid = 0;
+        for (int seed = 1; seed <= count; seed++) {
+            if (!isValid(generator.generate(seed))) {
+                invalid++;
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d mazes of %dx%d generated and checked in %.2f s (%.0f per second), %d invalid%n",
+                count, width, height, seconds, count / seconds, invalid);
+    }
+}
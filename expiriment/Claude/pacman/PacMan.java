@@ -0,0 +1,148 @@
+package pacman;
+
+// Pac-Man class
+public class PacMan {
+    // Mouth opens and closes in steps of MOUTH_ANGLE_STEP degrees between 0 and MAX_MOUTH_ANGLE
+    public static final int MOUTH_ANGLE_STEP = 5;
+    public static final int MAX_MOUTH_ANGLE = 45;
+    
+    private int x, y;             // Grid position
+    private int prevX, prevY;     // Grid position before the last move, for interpolation
+    private int startX, startY;   // Starting position
+    private Direction currentDirection = Direction.NONE;
+    private Direction nextDirection = Direction.NONE;
+    private int mouthAngle = 0;
+    private boolean mouthOpening = true;
+    private Maze maze;
+    
+    public PacMan(int x, int y, Maze maze) {
+        this.x = x;
+        this.y = y;
+        this.startX = x;
+        this.startY = y;
+        this.prevX = x;
+        this.prevY = y;
+        this.maze = maze;
+    }
+    
+    // Copy of another Pac-Man for a copied game
+    public PacMan(PacMan other, Maze maze) {
+        this.x = other.x;
+        this.y = other.y;
+        this.prevX = other.prevX;
+        this.prevY = other.prevY;
+        this.startX = other.startX;
+        this.startY = other.startY;
+        this.currentDirection = other.currentDirection;
+        this.nextDirection = other.nextDirection;
+        this.mouthAngle = other.mouthAngle;
+        this.mouthOpening = other.mouthOpening;
+        this.maze = maze;
+    }
+    
+    public void move() {
+        prevX = x;
+        prevY = y;
+        
+        // Try to change direction if requested
+        if (nextDirection != currentDirection && canMove(nextDirection)) {
+            currentDirection = nextDirection;
+        }
+        
+        // Move in current direction if possible
+        if (canMove(currentDirection)) {
+            switch (currentDirection) {
+                case UP:
+                    y--;
+                    break;
+                case DOWN:
+                    y++;
+                    break;
+                case LEFT:
+                    x--;
+                    break;
+                case RIGHT:
+                    x++;
+                    break;
+                case NONE:
+                    break;
+            }
+            x = maze.wrapX(x);
+        }
+        
+        // Animate mouth
+        if (mouthOpening) {
+            mouthAngle += MOUTH_ANGLE_STEP;
+            if (mouthAngle >= MAX_MOUTH_ANGLE) {
+                mouthOpening = false;
+            }
+        } else {
+            mouthAngle -= MOUTH_ANGLE_STEP;
+            if (mouthAngle <= 0) {
+                mouthOpening = true;
+            }
+        }
+    }
+    
+    private boolean canMove(Direction direction) {
+        int newX = x;
+        int newY = y;
+        
+        switch (direction) {
+            case UP:
+                newY--;
+                break;
+            case DOWN:
+                newY++;
+                break;
+            case LEFT:
+                newX--;
+                break;
+            case RIGHT:
+                newX++;
+                break;
+            case NONE:
+                return false;
+        }
+        
+        // Check if the new position is valid (not a wall)
+        return !maze.isWall(maze.wrapX(newX), newY);
+    }
+    
+    public void setNextDirection(Direction direction) {
+        this.nextDirection = direction;
+    }
+    
+    public int getX() {
+        return x;
+    }
+    
+    public int getY() {
+        return y;
+    }
+    
+    public int getPrevX() {
+        return prevX;
+    }
+    
+    public int getPrevY() {
+        return prevY;
+    }
+    
+    public int getMouthAngle() {
+        return mouthAngle;
+    }
+    
+    public void reset(int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.prevX = x;
+        this.prevY = y;
+        this.currentDirection = Direction.NONE;
+        this.nextDirection = Direction.NONE;
+    }
+    
+    public Direction getDirection() {
+        return currentDirection;
+    }
+}
@@ -0,0 +1,7 @@
+package pacman;
+
+// Decides Pac-Man's input each tick when nobody is at the keyboard, e.g. in batch runs
+public interface PacManController {
+    // Direction to pass to Game.step this tick, or NONE to carry on
+    Direction nextInput(Game game);
+}
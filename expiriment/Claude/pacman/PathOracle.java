@@ -0,0 +1,145 @@
+package pacman;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+// Path oracle - all-pairs shortest path table for ghost AI. The tables are read through buffers, so one
+// loaded from a PathOracleCache file can stay memory-mapped; they are never written once built, so any
+// number of games and threads can share one oracle.
+public class PathOracle {
+    private static final byte NO_STEP = -1;
+    
+    private final int width;
+    private final int height;
+    private final int[] nodeOfCell;  // Cell index (x + y * width) -> open cell number, -1 for walls
+    private final int nodeCount;
+    private final ShortBuffer distances; // [from * nodeCount + to], -1 if unreachable
+    private final ByteBuffer nextSteps;  // [from * nodeCount + to], index into Grid.DIRECTIONS or NO_STEP
+    
+    public PathOracle(Maze maze) {
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+        
+        // Number the open cells so the tables only cover walkable space
+        nodeOfCell = new int[width * height];
+        int[] cellOfNode = new int[width * height];
+        nodeCount = numberOpenCells(maze, nodeOfCell, cellOfNode);
+        short[] distanceTable = new short[nodeCount * nodeCount];
+        byte[] stepTable = new byte[nodeCount * nodeCount];
+        Arrays.fill(distanceTable, (short) -1);
+        Arrays.fill(stepTable, NO_STEP);
+        
+        // One BFS per open cell, remembering the first step taken towards every reached cell
+        int[] queue = new int[nodeCount];
+        for (int source = 0; source < nodeCount; source++) {
+            int row = source * nodeCount;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = source;
+            distanceTable[row + source] = 0;
+            
+            while (head < tail) {
+                int node = queue[head++];
+                int cell = cellOfNode[node];
+                int cx = cell % width;
+                int cy = cell / width;
+                
+                // Same neighbour order as the ghosts' original BFS, so ties break the same way
+                for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+                    int nx = maze.wrapX(cx + Grid.DX[d]);
+                    int ny = cy + Grid.DY[d];
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+                    int next = nodeOfCell[nx + ny * width];
+                    if (next < 0 || distanceTable[row + next] >= 0) {
+                        continue;
+                    }
+                    distanceTable[row + next] = (short) (distanceTable[row + node] + 1);
+                    stepTable[row + next] = node == source ? (byte) d : stepTable[row + node];
+                    queue[tail++] = next;
+                }
+            }
+        }
+        this.distances = ShortBuffer.wrap(distanceTable);
+        this.nextSteps = ByteBuffer.wrap(stepTable);
+    }
+    
+    // Oracle over tables built earlier for this maze's layout, nodeCount * nodeCount entries each
+    PathOracle(Maze maze, ShortBuffer distances, ByteBuffer nextSteps) {
+        this.width = maze.getWidth();
+        this.height = maze.getHeight();
+        this.nodeOfCell = new int[width * height];
+        this.nodeCount = numberOpenCells(maze, nodeOfCell, new int[width * height]);
+        if (distances.capacity() != nodeCount * nodeCount || nextSteps.capacity() != nodeCount * nodeCount) {
+            throw new IllegalArgumentException("Tables are for " + distances.capacity() + " pairs, maze has "
+                    + nodeCount * nodeCount);
+        }
+        this.distances = distances;
+        this.nextSteps = nextSteps;
+    }
+    
+    // Numbers the open cells in row order, the order the tables are laid out in
+    private static int numberOpenCells(Maze maze, int[] nodeOfCell, int[] cellOfNode) {
+        int width = maze.getWidth();
+        int count = 0;
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < width; x++) {
+                int cell = x + y * width;
+                if (maze.isWall(x, y)) {
+                    nodeOfCell[cell] = -1;
+                } else {
+                    nodeOfCell[cell] = count;
+                    cellOfNode[count++] = cell;
+                }
+            }
+        }
+        return count;
+    }
+    
+    int getNodeCount() {
+        return nodeCount;
+    }
+    
+    // Read-only views of the tables, for saving them
+    ShortBuffer getDistances() {
+        return distances.asReadOnlyBuffer();
+    }
+    
+    ByteBuffer getNextSteps() {
+        return nextSteps.asReadOnlyBuffer();
+    }
+    
+    // First step of the shortest path, or NONE if there is no path or we are already there
+    public Direction nextStep(int fromX, int fromY, int toX, int toY) {
+        int index = pairIndex(fromX, fromY, toX, toY);
+        if (index < 0) {
+            return Direction.NONE;
+        }
+        byte step = nextSteps.get(index);
+        return step == NO_STEP ? Direction.NONE : Grid.DIRECTIONS[step];
+    }
+    
+    // Shortest path length in cells, or -1 if unreachable
+    public int distance(int fromX, int fromY, int toX, int toY) {
+        int index = pairIndex(fromX, fromY, toX, toY);
+        return index < 0 ? -1 : distances.get(index);
+    }
+    
+    private int pairIndex(int fromX, int fromY, int toX, int toY) {
+        int from = nodeAt(fromX, fromY);
+        int to = nodeAt(toX, toY);
+        if (from < 0 || to < 0) {
+            return -1;
+        }
+        return from * nodeCount + to;
+    }
+    
+    private int nodeAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        return nodeOfCell[x + y * width];
+    }
+}
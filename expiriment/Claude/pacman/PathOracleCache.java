@@ -0,0 +1,199 @@
+package pacman;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
+
+// Path tables kept on disk between runs, one file per maze layout named after Maze.getLayoutHash(). A file
+// is a header followed by the distance table and then the next-step table, little-endian. The header holds
+// a checksum of the walls as well as the hash, so a layout whose hash collides with another's is not handed
+// its table. Loading one is a single read-only mapping, so a level's table is ready in microseconds and its
+// pages are only read in as ghosts use them. Every maze in the JVM with the same layout shares the one table
+// while any of them still holds it; tables no maze uses any more are left to the garbage collector.
+// A missing, stale or unreadable file is rebuilt and replaced, written and synced to a temp file and renamed
+// over the old one, with the directory synced after, so neither concurrent runs nor a crash leave half a
+// table. The table itself is not checksummed: that would read every page of it on load.
+public class PathOracleCache {
+    private static final int MAGIC = 0x504D5054; // "PMPT"
+    private static final int VERSION = 2;        // 2 added the wall checksum
+    private static final int HEADER_BYTES = 40;  // Keeps the distance table aligned
+    
+    private final Path directory;
+    private final Map<Long, LoadedTable> loaded = new ConcurrentHashMap<>();
+    private final ReferenceQueue<PathOracle> collected = new ReferenceQueue<>();
+    // Per hash, the load or build under way; done once its table is in loaded
+    private final Map<Long, CompletableFuture<Void>> inProgress = new ConcurrentHashMap<>();
+    
+    // Entry of loaded that lets its table go once no maze holds it, and says which entry to drop then
+    private static class LoadedTable extends WeakReference<PathOracle> {
+        final long hash;
+        final long walls;  // Wall checksum of the layout the table is for
+        
+        LoadedTable(long hash, long walls, PathOracle oracle, ReferenceQueue<PathOracle> queue) {
+            super(oracle, queue);
+            this.hash = hash;
+            this.walls = walls;
+        }
+    }
+    
+    public PathOracleCache(Path directory) {
+        this.directory = directory;
+    }
+    
+    // The table for the maze's layout: one already loaded, the cached file, or a new one that is then saved
+    public PathOracle get(Maze maze) {
+        // Forget tables the garbage collector has taken
+        Object gone;
+        while ((gone = collected.poll()) != null) {
+            loaded.remove(((LoadedTable) gone).hash, gone);
+        }
+        long hash = maze.getLayoutHash();
+        long walls = wallChecksum(maze);
+        while (true) {
+            PathOracle oracle = shared(hash, walls);
+            if (oracle != null) {
+                return oracle;
+            }
+            // One caller per hash loads or builds, without holding up lookups of any other hash; the rest wait
+            // for it and then look again
+            CompletableFuture<Void> building = new CompletableFuture<>();
+            CompletableFuture<Void> pending = inProgress.putIfAbsent(hash, building);
+            if (pending != null) {
+                pending.join();
+                continue;
+            }
+            try {
+                LoadedTable table = loaded.get(hash);
+                oracle = table == null ? null : table.get();
+                if (oracle == null) {
+                    oracle = loadOrBuild(hash, walls, maze);
+                    loaded.put(hash, new LoadedTable(hash, walls, oracle, collected));
+                } else if (table.walls != walls) {
+                    // Another layout with the same hash holds the entry; this one does without sharing
+                    oracle = new PathOracle(maze);
+                }
+                return oracle;
+            } finally {
+                inProgress.remove(hash, building);
+                building.complete(null);
+            }
+        }
+    }
+    
+    // The loaded table for this layout, or null if there is none
+    private PathOracle shared(long hash, long walls) {
+        LoadedTable table = loaded.get(hash);
+        PathOracle oracle = table == null ? null : table.get();
+        return oracle != null && table.walls == walls ? oracle : null;
+    }
+    
+    private PathOracle loadOrBuild(long hash, long walls, Maze maze) {
+        Path file = fileFor(hash);
+        try {
+            PathOracle oracle = load(file, hash, walls, maze);
+            if (oracle != null) {
+                return oracle;
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Ignoring unreadable path table " + file + ": " + e.getMessage());
+        }
+        
+        PathOracle oracle = new PathOracle(maze);
+        try {
+            save(oracle, hash, walls, maze);
+            // From the file from now on, so the heap copy can go
+            PathOracle mapped = load(file, hash, walls, maze);
+            return mapped != null ? mapped : oracle;
+        } catch (IOException e) {
+            System.err.println("Error saving path table " + file + ": " + e.getMessage());
+            return oracle;
+        }
+    }
+    
+    private Path fileFor(long hash) {
+        return directory.resolve(String.format("%016x.paths", hash));
+    }
+    
+    // Null when there is no file, or it is for another layout or format
+    private PathOracle load(Path file, long hash, long walls, Maze maze) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                || buffer.getLong() != hash || buffer.getLong() != walls
+                || buffer.getInt() != maze.getWidth() || buffer.getInt() != maze.getHeight()
+                || buffer.getInt() != (maze.wrapsTunnels() ? 1 : 0)) {
+            return null;
+        }
+        int nodes = buffer.getInt();
+        long pairs = (long) nodes * nodes;
+        if (pairs > Integer.MAX_VALUE || buffer.capacity() != HEADER_BYTES + pairs * 3) {
+            return null;
+        }
+        ByteBuffer distances = buffer.slice(HEADER_BYTES, (int) pairs * 2).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer nextSteps = buffer.slice(HEADER_BYTES + (int) pairs * 2, (int) pairs);
+        return new PathOracle(maze, distances.asShortBuffer(), nextSteps);
+    }
+    
+    private void save(PathOracle oracle, long hash, long walls, Maze maze) throws IOException {
+        Files.createDirectories(directory);
+        int nodes = oracle.getNodeCount();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putLong(hash).putLong(walls)
+                .putInt(maze.getWidth())
+                .putInt(maze.getHeight())
+                .putInt(maze.wrapsTunnels() ? 1 : 0)
+                .putInt(nodes)
+                .flip();
+        ByteBuffer distances = ByteBuffer.allocate(nodes * nodes * 2).order(ByteOrder.LITTLE_ENDIAN);
+        distances.asShortBuffer().put(oracle.getDistances());
+        
+        Path temp = Files.createTempFile(directory, "paths", ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                for (ByteBuffer part : new ByteBuffer[] {header, distances, oracle.getNextSteps()}) {
+                    while (part.hasRemaining()) {
+                        out.write(part);
+                    }
+                }
+                out.force(true);
+            }
+            Files.move(temp, fileFor(hash), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            FileSync.syncDirectory(directory);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    // CRC-32C of the maze's wall bitboards, row by row
+    private static long wallChecksum(Maze maze) {
+        CRC32C crc = new CRC32C();
+        ByteBuffer word = ByteBuffer.allocate(Long.BYTES);
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < maze.getWidth(); x += Maze.CHUNK_SIZE) {
+                int cells = Math.min(Maze.CHUNK_SIZE, maze.getWidth() - x);
+                long inside = cells == Maze.CHUNK_SIZE ? -1L : (1L << cells) - 1;
+                crc.update(word.clear().putLong(maze.getWallWord(x, y) & inside).flip());
+            }
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,10 @@
+package pacman;
+
+// Pathfinder - pluggable search backend for ghost AI
+public interface Pathfinder {
+    // First step of a shortest path, or NONE if there is no path or we are already there
+    Direction firstStep(int fromX, int fromY, int toX, int toY);
+    
+    // Number of nodes expanded by the last search
+    int getExpandedNodes();
+}
@@ -0,0 +1,8 @@
+package pacman;
+
+// Available pathfinder backends. FLOW_FIELD and INCREMENTAL are not Pathfinders of their own: ghosts using
+// FLOW_FIELD share the game's FlowFields, one per chase target, and ghosts using INCREMENTAL each keep a
+// DStarLite planner per target that is repaired from tick to tick.
+public enum PathfinderType {
+    BFS, BIT_BFS, A_STAR, JUMP_POINT, JUNCTION, HIERARCHICAL, FLOW_FIELD, INCREMENTAL
+}
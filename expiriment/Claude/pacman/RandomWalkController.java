@@ -0,0 +1,50 @@
+package pacman;
+
+import java.util.Random;
+
+// Random walk controller - keeps going straight in corridors and picks a random way at junctions
+public class RandomWalkController implements PacManController {
+    private static final int[] OPPOSITES = {1, 0, 3, 2}; // Index of the reverse of each direction
+    
+    private final Random random;
+    
+    public RandomWalkController(long seed) {
+        this.random = new Random(seed);
+    }
+    
+    @Override
+    public Direction nextInput(Game game) {
+        return nextInput(game, game.getPacMan());
+    }
+    
+    // Input for any one Pac-Man of a swarm game
+    public Direction nextInput(Game game, PacMan pacMan) {
+        int open = game.getMaze().openNeighbors(pacMan.getX(), pacMan.getY());
+        Direction current = pacMan.getDirection();
+        
+        // Don't turn back unless it is the only way out
+        int choices = open;
+        if (current != Direction.NONE) {
+            int reverse = 1 << OPPOSITES[current.ordinal()];
+            if ((open & ~reverse) != 0) {
+                choices &= ~reverse;
+            }
+            // In a corridor there is nothing to decide
+            if (choices == (1 << current.ordinal())) {
+                return Direction.NONE;
+            }
+        }
+        if (choices == 0) {
+            return Direction.NONE;
+        }
+        
+        // Pick one of the set bits uniformly
+        int pick = random.nextInt(Integer.bitCount(choices));
+        for (int d = 0; d < Grid.DIRECTIONS.length; d++) {
+            if ((choices & (1 << d)) != 0 && pick-- == 0) {
+                return Grid.DIRECTIONS[d];
+            }
+        }
+        return Direction.NONE;
+    }
+}
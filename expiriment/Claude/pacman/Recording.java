@@ -0,0 +1,174 @@
+package pacman;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+// Input recording of one game: the seed, plus each tick on which the player's input changed.
+// With the same maze and Game.SIMULATION_VERSION, that is all it takes to play the game again exactly
+// (see ReplayPlayer). Encoded as a small header followed by varints of (ticks since the previous input << 2 | direction);
+// an entry with zero ticks since the previous one ends the inputs and is followed by the ticks left.
+public class Recording {
+    private static final int MAGIC = 0x504D5243; // "PMRC"
+    private static final int VERSION = 2;   // 2 added the simulation version; 1 implies simulation version 1
+    private static final int HEADER_BYTES = 20;
+    
+    private final long seed;
+    private final int simulationVersion; // Game.SIMULATION_VERSION of the game that was recorded
+    private long[] inputTicks = new long[64];
+    private byte[] inputs = new byte[64];
+    private int inputCount = 0;
+    private long length = 0;
+    
+    public Recording(long seed) {
+        this(seed, Game.SIMULATION_VERSION);
+    }
+    
+    private Recording(long seed, int simulationVersion) {
+        this.seed = seed;
+        this.simulationVersion = simulationVersion;
+    }
+    
+    // Note the input passed to Game.step on the given tick (as returned by getTick() after the step)
+    public void record(long tick, Direction input) {
+        if (tick > length) {
+            length = tick;
+        }
+        if (input == Direction.NONE) {
+            return;
+        }
+        if (inputCount > 0 && tick <= inputTicks[inputCount - 1]) {
+            throw new IllegalArgumentException("Inputs must be recorded in tick order");
+        }
+        if (inputCount == inputs.length) {
+            inputTicks = Arrays.copyOf(inputTicks, inputCount * 2);
+            inputs = Arrays.copyOf(inputs, inputCount * 2);
+        }
+        inputTicks[inputCount] = tick;
+        inputs[inputCount] = (byte) input.ordinal();
+        inputCount++;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public int getSimulationVersion() {
+        return simulationVersion;
+    }
+    
+    // Ticks the recorded game lasted
+    public long getLength() {
+        return length;
+    }
+    
+    public int getInputCount() {
+        return inputCount;
+    }
+    
+    public long getInputTick(int i) {
+        return inputTicks[i];
+    }
+    
+    public Direction getInput(int i) {
+        return Grid.DIRECTIONS[inputs[i]];
+    }
+    
+    // Index of the first input recorded after the given tick
+    public int indexAfter(long tick) {
+        int low = 0;
+        int high = inputCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (inputTicks[mid] <= tick) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    public byte[] toBytes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(HEADER_BYTES + inputCount * 2);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(simulationVersion).putLong(seed);
+        out.write(header.array(), 0, header.capacity());
+        
+        long previous = 0;
+        for (int i = 0; i < inputCount; i++) {
+            writeVarint(out, (inputTicks[i] - previous) << 2 | inputs[i]);
+            previous = inputTicks[i];
+        }
+        writeVarint(out, 0);
+        writeVarint(out, length - previous);
+        return out.toByteArray();
+    }
+    
+    public static Recording fromBytes(byte[] bytes) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        if (in.remaining() < 16 || in.getInt() != MAGIC) {
+            throw new IOException("Not a recording");
+        }
+        int version = in.getInt();
+        if (version != 1 && version != VERSION) {
+            throw new IOException("Unsupported recording version " + version);
+        }
+        if (version != 1 && in.remaining() < HEADER_BYTES - 8) {
+            throw new IOException("Recording is cut short");
+        }
+        int simulationVersion = version == 1 ? 1 : in.getInt();
+        
+        Recording recording = new Recording(in.getLong(), simulationVersion);
+        long tick = 0;
+        while (true) {
+            long entry = readVarint(in);
+            long delta = entry >>> 2;
+            if (delta == 0) {
+                break;
+            }
+            tick += delta;
+            recording.record(tick, Grid.DIRECTIONS[(int) (entry & 3)]);
+        }
+        recording.length = tick + readVarint(in);
+        return recording;
+    }
+    
+    public void save(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Files.write(file, toBytes());
+    }
+    
+    public static Recording load(Path file) throws IOException {
+        return fromBytes(Files.readAllBytes(file));
+    }
+    
+    private static void writeVarint(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) {
+                throw new IOException("Recording is cut short");
+            }
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed recording");
+    }
+}
@@ -0,0 +1,109 @@
+package pacman;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+// Plays a recording back on a copy of the maze it was made on. Loading runs the whole game once,
+// headless, keeping a copy of the game every KEYFRAME_INTERVAL ticks; seeking restores the nearest
+// keyframe before the target and steps from there, so no seek takes more than one interval of ticks.
+public class ReplayPlayer {
+    public static final int KEYFRAME_INTERVAL = 10 * Game.TICKS_PER_SECOND;
+    
+    private final Recording recording;
+    private final List<Game> keyframes = new ArrayList<>(); // keyframes.get(i) is at tick i * KEYFRAME_INTERVAL
+    private Game game;
+    private int nextInput = 0; // Index of the next recorded input to apply
+    
+    public ReplayPlayer(Recording recording, Maze template) {
+        requirePlayable(recording);
+        this.recording = recording;
+        
+        game = new Game(new Maze(template), recording.getSeed());
+        while (true) {
+            if (game.getTick() % KEYFRAME_INTERVAL == 0) {
+                keyframes.add(new Game(game));
+            }
+            if (isFinished()) {
+                break;
+            }
+            step();
+        }
+        seek(0);
+    }
+    
+    // A recording of an older simulation would load fine and then play a different game
+    public static void requirePlayable(Recording recording) {
+        if (recording.getSimulationVersion() != Game.SIMULATION_VERSION) {
+            throw new IllegalArgumentException("Recording was made with simulation version "
+                    + recording.getSimulationVersion() + ", this game plays version " + Game.SIMULATION_VERSION);
+        }
+    }
+    
+    public Game getGame() {
+        return game;
+    }
+    
+    public Recording getRecording() {
+        return recording;
+    }
+    
+    public long getTick() {
+        return game.getTick();
+    }
+    
+    public boolean isFinished() {
+        return game.isFinished() || game.getTick() >= recording.getLength();
+    }
+    
+    // Advances one tick with the recorded input; returns the GameEvent mask like Game.step
+    public int step() {
+        if (isFinished()) {
+            return 0;
+        }
+        Direction input = Direction.NONE;
+        if (nextInput < recording.getInputCount() && recording.getInputTick(nextInput) == game.getTick() + 1) {
+            input = recording.getInput(nextInput++);
+        }
+        return game.step(input);
+    }
+    
+    // Jumps to the given tick, clamped to the recording. The game object is replaced.
+    public void seek(long tick) {
+        tick = Math.max(0, Math.min(tick, recording.getLength()));
+        int keyframe = (int) Math.min(tick / KEYFRAME_INTERVAL, keyframes.size() - 1);
+        game = new Game(keyframes.get(keyframe));
+        nextInput = recording.indexAfter(game.getTick());
+        while (game.getTick() < tick && !isFinished()) {
+            step();
+        }
+    }
+    
+    // Plays the rest of the recording as fast as possible
+    public Game runToEnd() {
+        while (!isFinished()) {
+            step();
+        }
+        return game;
+    }
+    
+    // Usage: ReplayPlayer <recording> - replays headless at full speed and prints the result
+    public static void main(String[] args) throws IOException {
+        Recording recording = Recording.load(Paths.get(args[0]));
+        
+        long loadStart = System.nanoTime();
+        ReplayPlayer player = new ReplayPlayer(recording, Game.newStandardMaze());
+        long loadNanos = System.nanoTime() - loadStart;
+        
+        long start = System.nanoTime();
+        Game game = player.runToEnd();
+        long nanos = System.nanoTime() - start;
+        
+        System.out.printf("seed=%d ticks=%d inputs=%d score=%d lives=%d %s%n", recording.getSeed(),
+                game.getTick(), recording.getInputCount(), game.getScore(), game.getLives(),
+                game.isGameWon() ? "won" : game.isGameOver() ? "lost" : "unfinished");
+        System.out.printf("load (with %d keyframes) %.1f ms, replay %.1f ms, %.0f ticks/s%n", player.keyframes.size(),
+                loadNanos / 1e6, nanos / 1e6, game.getTick() / (nanos / 1e9));
+    }
+}
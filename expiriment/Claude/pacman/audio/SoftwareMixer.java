@@ -0,0 +1,238 @@
+package pacman.audio;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+
+// Software mixer - one thread owns one output line and mixes a fixed pool of voices into it.
+// Sounds are decoded to 16-bit mono PCM at load time, so playing one only points a voice at a buffer.
+// Other threads never touch the voices: play() bumps a per-sound counter that the mixer drains once
+// per period, which is lock-free and also merges repeated triggers of a sound within one period.
+// Nothing is allocated once the mixer is running. Sounds may be loaded from any thread while it runs;
+// until a sound is loaded, playing it does nothing.
+public class SoftwareMixer {
+    public static final float SAMPLE_RATE = 44100f;
+    private static final int PERIOD_FRAMES = 256;  // Frames mixed per pass, about 6 ms
+    private static final int BUFFER_PERIODS = 3;   // Line buffer size, which bounds output latency
+    private static final AudioFormat OUTPUT_FORMAT = new AudioFormat(SAMPLE_RATE, 16, 1, true, false);
+    
+    private final AtomicReferenceArray<short[]> sounds;
+    private final int[] maxVoices;
+    private final AtomicIntegerArray pendingPlays;
+    
+    // Voice pool, owned by the mixer thread
+    private final int[] voiceSound;
+    private final int[] voicePosition;
+    private final long[] voiceStarted;
+    private long voiceSequence = 0;
+    
+    private final int[] mixBuffer = new int[PERIOD_FRAMES];
+    private final byte[] outputBuffer = new byte[PERIOD_FRAMES * 2];
+    
+    private SourceDataLine line;
+    private volatile Thread mixerThread;
+    private volatile long lastLatencyNanos;
+    private volatile long maxLatencyNanos;
+    private volatile int underruns;
+    
+    public SoftwareMixer(int voiceCount, int soundCount) {
+        this.sounds = new AtomicReferenceArray<>(soundCount);
+        this.maxVoices = new int[soundCount];
+        this.pendingPlays = new AtomicIntegerArray(soundCount);
+        this.voiceSound = new int[voiceCount];
+        this.voicePosition = new int[voiceCount];
+        this.voiceStarted = new long[voiceCount];
+        Arrays.fill(voiceSound, -1);
+    }
+    
+    // Decodes a sound into the mixer's format. At most maxVoices copies of it play at once;
+    // playing it again beyond that restarts the oldest one.
+    public void load(int sound, AudioInputStream source, int maxVoices) throws IOException {
+        short[] samples = decode(source);
+        this.maxVoices[sound] = Math.max(1, maxVoices);
+        sounds.set(sound, samples); // Publishes the limit along with the samples
+    }
+    
+    // Opens the output line and starts mixing; without an audio device the mixer just stays silent
+    public boolean start() {
+        if (mixerThread != null) {
+            return true;
+        }
+        try {
+            line = AudioSystem.getSourceDataLine(OUTPUT_FORMAT);
+            line.open(OUTPUT_FORMAT, PERIOD_FRAMES * 2 * BUFFER_PERIODS);
+            line.start();
+        } catch (LineUnavailableException | IllegalArgumentException | SecurityException e) {
+            System.err.println("No audio output: " + e.getMessage());
+            line = null;
+            return false;
+        }
+        
+        Thread thread = new Thread(this::runMixer, "audio-mixer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MAX_PRIORITY);
+        mixerThread = thread;
+        thread.start();
+        return true;
+    }
+    
+    public void stop() {
+        mixerThread = null;
+    }
+    
+    // Safe from any thread; the sound starts with the next mixed period
+    public void play(int sound) {
+        if (mixerThread != null && sounds.get(sound) != null) {
+            pendingPlays.incrementAndGet(sound);
+        }
+    }
+    
+    // Time from a sample being written to the line until it is heard, as of the last period
+    public double getLatencyMillis() {
+        return lastLatencyNanos / 1e6;
+    }
+    
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos / 1e6;
+    }
+    
+    // Times the line ran dry because the mixer fell behind
+    public int getUnderruns() {
+        return underruns;
+    }
+    
+    private void runMixer() {
+        Thread self = Thread.currentThread();
+        int bufferBytes = line.getBufferSize();
+        long framesWritten = 0;
+        
+        while (mixerThread == self) {
+            startPendingVoices();
+            mixPeriod();
+            
+            if (line.available() >= bufferBytes && framesWritten > 0) {
+                underruns++;
+            }
+            // Blocks while the line buffer is full, which is what paces this loop
+            line.write(outputBuffer, 0, outputBuffer.length);
+            framesWritten += PERIOD_FRAMES;
+            
+            long queuedFrames = framesWritten - line.getLongFramePosition();
+            long latency = (long) (queuedFrames * 1e9 / SAMPLE_RATE);
+            lastLatencyNanos = latency;
+            if (latency > maxLatencyNanos) {
+                maxLatencyNanos = latency;
+            }
+        }
+        
+        line.drain();
+        line.close();
+    }
+    
+    private void startPendingVoices() {
+        for (int sound = 0; sound < sounds.length(); sound++) {
+            if (pendingPlays.get(sound) != 0 && pendingPlays.getAndSet(sound, 0) > 0) {
+                startVoice(sound);
+            }
+        }
+    }
+    
+    private void startVoice(int sound) {
+        int playing = 0;
+        int oldestOfSound = -1;
+        int free = -1;
+        int oldest = 0;
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] == sound) {
+                playing++;
+                if (oldestOfSound < 0 || voiceStarted[v] < voiceStarted[oldestOfSound]) {
+                    oldestOfSound = v;
+                }
+            } else if (voiceSound[v] < 0 && free < 0) {
+                free = v;
+            }
+            if (voiceStarted[v] < voiceStarted[oldest]) {
+                oldest = v;
+            }
+        }
+        
+        // Over the sound's own limit its oldest copy restarts; with no voice free the oldest voice is taken
+        int voice = playing >= maxVoices[sound] ? oldestOfSound : (free >= 0 ? free : oldest);
+        voiceSound[voice] = sound;
+        voicePosition[voice] = 0;
+        voiceStarted[voice] = ++voiceSequence;
+    }
+    
+    private void mixPeriod() {
+        Arrays.fill(mixBuffer, 0);
+        for (int v = 0; v < voiceSound.length; v++) {
+            if (voiceSound[v] < 0) {
+                continue;
+            }
+            short[] samples = sounds.get(voiceSound[v]);
+            int position = voicePosition[v];
+            int frames = Math.min(PERIOD_FRAMES, samples.length - position);
+            for (int i = 0; i < frames; i++) {
+                mixBuffer[i] += samples[position + i];
+            }
+            voicePosition[v] = position + frames;
+            if (voicePosition[v] >= samples.length) {
+                voiceSound[v] = -1;
+            }
+        }
+        
+        for (int i = 0; i < PERIOD_FRAMES; i++) {
+            int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mixBuffer[i]));
+            outputBuffer[2 * i] = (byte) sample;
+            outputBuffer[2 * i + 1] = (byte) (sample >> 8);
+        }
+    }
+    
+    // Converts to 16-bit PCM with the stream's own rate and channels, then downmixes and resamples here,
+    // since the built-in converters don't all handle sample rate changes
+    private static short[] decode(AudioInputStream source) throws IOException {
+        AudioFormat format = source.getFormat();
+        AudioFormat pcmFormat = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+        byte[] bytes;
+        try (AudioInputStream pcm = AudioSystem.getAudioInputStream(pcmFormat, source)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[8192];
+            for (int read; (read = pcm.read(chunk)) > 0; ) {
+                out.write(chunk, 0, read);
+            }
+            bytes = out.toByteArray();
+        }
+        
+        int channels = pcmFormat.getChannels();
+        int frames = bytes.length / (2 * channels);
+        float[] mono = new float[frames];
+        for (int f = 0; f < frames; f++) {
+            int sum = 0;
+            for (int c = 0; c < channels; c++) {
+                int offset = 2 * (f * channels + c);
+                sum += (short) ((bytes[offset] & 0xFF) | (bytes[offset + 1] << 8));
+            }
+            mono[f] = (float) sum / channels;
+        }
+        
+        // Linear resampling to the output rate
+        double step = pcmFormat.getSampleRate() / SAMPLE_RATE;
+        int outputFrames = (int) (frames / step);
+        short[] samples = new short[outputFrames];
+        for (int i = 0; i < outputFrames; i++) {
+            double position = i * step;
+            int index = (int) position;
+            float fraction = (float) (position - index);
+            float next = index + 1 < frames ? mono[index + 1] : mono[index];
+            samples[i] = (short) Math.round(mono[index] + (next - mono[index]) * fraction);
+        }
+        return samples;
+    }
+}
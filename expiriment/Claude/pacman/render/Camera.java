@@ -0,0 +1,46 @@
+package pacman.render;
+
+// Camera - the part of the maze a view of fixed pixel size shows. It keeps Pac-Man in the middle and stops
+// at the maze edges; a maze no bigger than the view just sits centred in it and never scrolls.
+public class Camera {
+    private final int viewWidth;
+    private final int viewHeight;
+    private int x; // Maze pixel at the view's top left corner
+    private int y;
+    
+    public Camera(int viewWidth, int viewHeight) {
+        this.viewWidth = viewWidth;
+        this.viewHeight = viewHeight;
+    }
+    
+    // Call once per frame, with the same snapshot and alpha the frame is drawn with
+    public void follow(WorldSnapshot snapshot, float alpha, int cellSize) {
+        int pacManX = WorldRenderer.interpolate(snapshot.pacManPrevX, snapshot.pacManX, alpha, cellSize);
+        int pacManY = WorldRenderer.interpolate(snapshot.pacManPrevY, snapshot.pacManY, alpha, cellSize);
+        x = clamp(pacManX + cellSize / 2 - viewWidth / 2, snapshot.width * cellSize - viewWidth);
+        y = clamp(pacManY + cellSize / 2 - viewHeight / 2, snapshot.height * cellSize - viewHeight);
+    }
+    
+    private static int clamp(int position, int max) {
+        if (max <= 0) {
+            return max / 2;
+        }
+        return Math.max(0, Math.min(max, position));
+    }
+    
+    public int getX() {
+        return x;
+    }
+    
+    public int getY() {
+        return y;
+    }
+    
+    public int getViewWidth() {
+        return viewWidth;
+    }
+    
+    public int getViewHeight() {
+        return viewHeight;
+    }
+}
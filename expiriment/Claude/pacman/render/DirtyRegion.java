@@ -0,0 +1,163 @@
+package pacman.render;
+
+import java.awt.Rectangle;
+import pacman.Maze;
+
+// Dirty region - works out which cells have to be repainted to go from the last painted snapshot
+// to the next one: where characters were and are, pellets that came or went, and blinking power pellets.
+// The cells are handed out as row runs, so each becomes one clipped repaint. It only covers the cells a
+// camera shows, and asks for a full repaint whenever the camera has moved.
+public class DirtyRegion {
+    private final int width;        // Cells in view, plus one for a view not aligned to the cell grid
+    private final int height;
+    private final long[] dirty;
+    private final long[] spriteCells;
+    private final long[] viewPellets;
+    private final long[] viewPowerPellets;
+    private final long[] paintedSprites;
+    private final long[] paintedPellets;
+    private final long[] paintedPowerPellets;
+    private final int[] runStarts;  // Cell index of each run of dirty cells within a row
+    private final int[] runLengths;
+    private int runCount = 0;
+    private int originX;            // Maze cell in the view's top left corner
+    private int originY;
+    private int offsetX;            // Pixel position of that cell in the view
+    private int offsetY;
+    private boolean invalid = true;
+    private boolean fullRepaint = true;
+    private boolean hudChanged = true;
+    private int paintedCameraX;
+    private int paintedCameraY;
+    private int paintedScore;
+    private int paintedLives;
+    private int paintedHighScore;
+    
+    public DirtyRegion(int viewColumns, int viewRows) {
+        this.width = viewColumns + 1;
+        this.height = viewRows + 1;
+        int words = (width * height + 63) >>> 6;
+        this.dirty = new long[words];
+        this.spriteCells = new long[words];
+        this.viewPellets = new long[words];
+        this.viewPowerPellets = new long[words];
+        this.paintedSprites = new long[words];
+        this.paintedPellets = new long[words];
+        this.paintedPowerPellets = new long[words];
+        this.runStarts = new int[width * height];
+        this.runLengths = new int[width * height];
+    }
+    
+    // Forget what was painted, e.g. after a restart or when an overlay covered the maze
+    public void invalidate() {
+        invalid = true;
+    }
+    
+    // Call once per frame with the snapshot about to be painted and the camera it is painted through
+    public void update(WorldSnapshot snapshot, Camera camera, int cellSize) {
+        originX = Math.floorDiv(camera.getX(), cellSize);
+        originY = Math.floorDiv(camera.getY(), cellSize);
+        offsetX = originX * cellSize - camera.getX();
+        offsetY = originY * cellSize - camera.getY();
+        
+        // Each character covers at most its previous and current cell while it is interpolated
+        for (int word = 0; word < spriteCells.length; word++) {
+            spriteCells[word] = 0;
+            viewPellets[word] = 0;
+            viewPowerPellets[word] = 0;
+        }
+        markCell(spriteCells, snapshot.pacManX, snapshot.pacManY);
+        markCell(spriteCells, snapshot.pacManPrevX, snapshot.pacManPrevY);
+        for (int i = 0; i < snapshot.ghostCount; i++) {
+            markCell(spriteCells, snapshot.ghostX[i], snapshot.ghostY[i]);
+            markCell(spriteCells, snapshot.ghostPrevX[i], snapshot.ghostPrevY[i]);
+        }
+        
+        // Pellets of the cells in view, out of the maze's chunked bitboards
+        for (int y = Math.max(0, originY); y < Math.min(snapshot.height, originY + height); y++) {
+            for (int x = Math.max(0, originX); x < Math.min(snapshot.width, originX + width); x++) {
+                int word = Maze.wordIndex(snapshot.chunkColumns, x, y);
+                if ((snapshot.pellets[word] & (1L << x)) != 0) {
+                    markCell(viewPellets, x, y);
+                }
+                if ((snapshot.powerPellets[word] & (1L << x)) != 0) {
+                    markCell(viewPowerPellets, x, y);
+                }
+            }
+        }
+        
+        boolean cameraMoved = camera.getX() != paintedCameraX || camera.getY() != paintedCameraY;
+        fullRepaint = invalid || cameraMoved || snapshot.gameOver || snapshot.gameWon;
+        invalid = false;
+        hudChanged = fullRepaint || snapshot.score != paintedScore || snapshot.lives != paintedLives
+                || snapshot.highScore != paintedHighScore;
+        
+        runCount = 0;
+        for (int word = 0; word < dirty.length; word++) {
+            // Power pellets are always included since they blink on a wall clock
+            dirty[word] = spriteCells[word] | paintedSprites[word]
+                    | (viewPellets[word] ^ paintedPellets[word])
+                    | viewPowerPellets[word] | paintedPowerPellets[word];
+            paintedSprites[word] = spriteCells[word];
+            paintedPellets[word] = viewPellets[word];
+            paintedPowerPellets[word] = viewPowerPellets[word];
+        }
+        paintedCameraX = camera.getX();
+        paintedCameraY = camera.getY();
+        paintedScore = snapshot.score;
+        paintedLives = snapshot.lives;
+        paintedHighScore = snapshot.highScore;
+        if (!fullRepaint) {
+            collectRuns();
+        }
+    }
+    
+    // True when the whole panel has to be repainted this frame; the runs are then empty
+    public boolean isFullRepaint() {
+        return fullRepaint;
+    }
+    
+    public boolean isHudChanged() {
+        return hudChanged;
+    }
+    
+    public int getRunCount() {
+        return runCount;
+    }
+    
+    // Pixel bounds in the view of one run of dirty cells
+    public Rectangle getRun(int i, int cellSize, Rectangle bounds) {
+        int index = runStarts[i];
+        bounds.setBounds(index % width * cellSize + offsetX, index / width * cellSize + offsetY,
+                runLengths[i] * cellSize, cellSize);
+        return bounds;
+    }
+    
+    // Sets the bit of a maze cell, if it is in view
+    private void markCell(long[] cells, int x, int y) {
+        x -= originX;
+        y -= originY;
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            int index = x + y * width;
+            cells[index >>> 6] |= 1L << index;
+        }
+    }
+    
+    // Turn the dirty bits into horizontal runs that do not cross row ends
+    private void collectRuns() {
+        int runEnd = -1;
+        for (int word = 0; word < dirty.length; word++) {
+            for (long bits = dirty[word]; bits != 0; bits &= bits - 1) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (index == runEnd && index % width != 0) {
+                    runLengths[runCount - 1]++;
+                } else {
+                    runStarts[runCount] = index;
+                    runLengths[runCount] = 1;
+                    runCount++;
+                }
+                runEnd = index + 1;
+            }
+        }
+    }
+}
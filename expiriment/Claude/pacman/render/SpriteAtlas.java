@@ -0,0 +1,159 @@
+package pacman.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.RenderingHints;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import pacman.Direction;
+import pacman.Ghost;
+import pacman.PacMan;
+
+// Sprite atlas - every Pac-Man mouth frame in every direction and every ghost look, drawn once at
+// one cell size into a single image, so drawing a character is a single drawImage of one cell.
+// Rows 0-3 hold Pac-Man facing up, down, left and right; row 4 holds the ghosts.
+class SpriteAtlas {
+    // Ghost frames are the ghost types in order, followed by these two
+    static final int GHOST_FRIGHTENED = Ghost.GhostType.values().length;
+    static final int GHOST_FLASHING = GHOST_FRIGHTENED + 1;
+    
+    private static final int MOUTH_FRAMES = PacMan.MAX_MOUTH_ANGLE / PacMan.MOUTH_ANGLE_STEP + 1;
+    private static final int GHOST_FRAMES = GHOST_FLASHING + 1;
+    private static final int GHOST_ROW = 4;
+    
+    private final int cellSize;
+    private final BufferedImage image;
+    
+    SpriteAtlas(GraphicsConfiguration config, int cellSize) {
+        this.cellSize = cellSize;
+        this.image = config.createCompatibleImage(Math.max(MOUTH_FRAMES, GHOST_FRAMES) * cellSize,
+                (GHOST_ROW + 1) * cellSize, Transparency.TRANSLUCENT);
+        
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            Direction[] facings = {Direction.UP, Direction.DOWN, Direction.LEFT, Direction.RIGHT};
+            for (Direction facing : facings) {
+                for (int frame = 0; frame < MOUTH_FRAMES; frame++) {
+                    paintPacMan(g2d, facing, frame * PacMan.MOUTH_ANGLE_STEP,
+                            frame * cellSize, pacManRow(facing) * cellSize);
+                }
+            }
+            for (int frame = 0; frame < GHOST_FRAMES; frame++) {
+                paintGhost(g2d, ghostColor(frame), frame * cellSize, GHOST_ROW * cellSize);
+            }
+        } finally {
+            g2d.dispose();
+        }
+    }
+    
+    int getCellSize() {
+        return cellSize;
+    }
+    
+    void drawPacMan(Graphics2D g2d, Direction direction, int mouthAngle, int x, int y) {
+        int frame = Math.max(0, Math.min(MOUTH_FRAMES - 1, mouthAngle / PacMan.MOUTH_ANGLE_STEP));
+        drawCell(g2d, frame, pacManRow(direction), x, y);
+    }
+    
+    void drawGhost(Graphics2D g2d, int frame, int x, int y) {
+        drawCell(g2d, frame, GHOST_ROW, x, y);
+    }
+    
+    private void drawCell(Graphics2D g2d, int column, int row, int x, int y) {
+        int sourceX = column * cellSize;
+        int sourceY = row * cellSize;
+        g2d.drawImage(image, x, y, x + cellSize, y + cellSize,
+                sourceX, sourceY, sourceX + cellSize, sourceY + cellSize, null);
+    }
+    
+    // Pac-Man faces right while standing still
+    private static int pacManRow(Direction direction) {
+        switch (direction) {
+            case UP:
+                return 0;
+            case DOWN:
+                return 1;
+            case LEFT:
+                return 2;
+            default:
+                return 3;
+        }
+    }
+    
+    private void paintPacMan(Graphics2D g2d, Direction direction, int mouthAngle, int x, int y) {
+        g2d.setColor(Color.YELLOW);
+        
+        // Calculate mouth angle based on direction
+        int startAngle = 0;
+        switch (direction) {
+            case UP:
+                startAngle = 90 - mouthAngle;
+                break;
+            case DOWN:
+                startAngle = 270 - mouthAngle;
+                break;
+            case LEFT:
+                startAngle = 180 - mouthAngle;
+                break;
+            default:
+                startAngle = 0 - mouthAngle;
+                break;
+        }
+        
+        // Draw Pac-Man with animated mouth
+        g2d.fillArc(x, y, cellSize, cellSize, startAngle, 360 - 2 * mouthAngle);
+    }
+    
+    private void paintGhost(Graphics2D g2d, Color color, int x, int y) {
+        g2d.setColor(color);
+        
+        // Ghost body (arc)
+        g2d.fillArc(x, y, cellSize, cellSize, 0, 180);
+        
+        // Ghost "skirt"
+        int skirtY = y + cellSize / 2;
+        int skirtHeight = cellSize / 2;
+        g2d.fillRect(x, skirtY, cellSize, skirtHeight);
+        
+        // Draw eyes
+        int eyeSize = cellSize / 4;
+        int leftEyeX = x + cellSize / 4 - eyeSize / 2;
+        int rightEyeX = x + 3 * cellSize / 4 - eyeSize / 2;
+        int eyeY = y + cellSize / 3 - eyeSize / 2;
+        
+        g2d.setColor(Color.WHITE);
+        g2d.fillOval(leftEyeX, eyeY, eyeSize, eyeSize);
+        g2d.fillOval(rightEyeX, eyeY, eyeSize, eyeSize);
+        
+        // Draw pupils
+        int pupilSize = eyeSize / 2;
+        int leftPupilX = leftEyeX + eyeSize / 4;
+        int rightPupilX = rightEyeX + eyeSize / 4;
+        int pupilY = eyeY + eyeSize / 4;
+        
+        g2d.setColor(Color.BLACK);
+        g2d.fillOval(leftPupilX, pupilY, pupilSize, pupilSize);
+        g2d.fillOval(rightPupilX, pupilY, pupilSize, pupilSize);
+    }
+    
+    private static Color ghostColor(int frame) {
+        if (frame == GHOST_FRIGHTENED) {
+            return Color.BLUE;
+        }
+        if (frame == GHOST_FLASHING) {
+            return Color.WHITE;
+        }
+        switch (Ghost.GhostType.values()[frame]) {
+            case BLINKY:
+                return Color.RED;
+            case PINKY:
+                return Color.PINK;
+            case INKY:
+                return Color.CYAN;
+            default:
+                return Color.ORANGE;
+        }
+    }
+}
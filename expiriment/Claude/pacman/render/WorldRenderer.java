@@ -0,0 +1,292 @@
+package pacman.render;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.Image;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import pacman.Maze;
+
+// World renderer - draws snapshots, never the live game objects
+public class WorldRenderer {
+    // Pre-rendered chunks kept around; a view needs at most four at a time, the rest save redrawing nearby ones
+    private static final int MAX_CACHED_CHUNKS = 16;
+    
+    private final Map<Integer, ChunkLayer> chunkLayers = new LinkedHashMap<>(MAX_CACHED_CHUNKS, 0.75f, true);
+    private int layerMazeWidth;  // Maze size and cell size the cached chunks were drawn for
+    private int layerMazeHeight;
+    private int layerCellSize;
+    private SpriteAtlas atlas;   // Characters, drawn at the cell size of the last frame
+    private Camera wholeMaze;    // For drawing without a camera
+    
+    // Draws the whole maze at the origin
+    public void draw(Graphics2D g2d, WorldSnapshot snapshot, int cellSize, float alpha) {
+        int width = snapshot.width * cellSize;
+        int height = snapshot.height * cellSize;
+        if (wholeMaze == null || wholeMaze.getViewWidth() != width || wholeMaze.getViewHeight() != height) {
+            wholeMaze = new Camera(width, height);
+        }
+        wholeMaze.follow(snapshot, alpha, cellSize);
+        draw(g2d, snapshot, cellSize, alpha, wholeMaze);
+    }
+    
+    // Draws what the camera sees, with the camera's top left corner at the origin
+    public void draw(Graphics2D g2d, WorldSnapshot snapshot, int cellSize, float alpha, Camera camera) {
+        if (atlas == null || atlas.getCellSize() != cellSize) {
+            atlas = new SpriteAtlas(g2d.getDeviceConfiguration(), cellSize);
+        }
+        
+        g2d.translate(-camera.getX(), -camera.getY());
+        try {
+            drawMaze(g2d, snapshot, cellSize, camera);
+            drawPacMan(g2d, snapshot, cellSize, alpha);
+            for (int i = 0; i < snapshot.ghostCount; i++) {
+                drawGhost(g2d, snapshot, i, cellSize, alpha);
+            }
+        } finally {
+            g2d.translate(camera.getX(), camera.getY());
+        }
+    }
+    
+    // Walls and pellets live on cached per-chunk layers that are blitted each frame, and only the chunks
+    // in view are touched. Walls are painted onto a layer only when they change; pellets are patched one
+    // cell at a time as they are eaten.
+    private void drawMaze(Graphics2D g2d, WorldSnapshot snapshot, int cellSize, Camera camera) {
+        if (snapshot.width != layerMazeWidth || snapshot.height != layerMazeHeight || cellSize != layerCellSize) {
+            for (ChunkLayer layer : chunkLayers.values()) {
+                layer.flush();
+            }
+            chunkLayers.clear();
+            layerMazeWidth = snapshot.width;
+            layerMazeHeight = snapshot.height;
+            layerCellSize = cellSize;
+        }
+        
+        int firstX = Math.max(0, camera.getX() / cellSize);
+        int firstY = Math.max(0, camera.getY() / cellSize);
+        int lastX = Math.min(snapshot.width - 1, (camera.getX() + camera.getViewWidth() - 1) / cellSize);
+        int lastY = Math.min(snapshot.height - 1, (camera.getY() + camera.getViewHeight() - 1) / cellSize);
+        int chunkPixels = Maze.CHUNK_SIZE * cellSize;
+        for (int row = firstY >> Maze.CHUNK_SHIFT; row <= lastY >> Maze.CHUNK_SHIFT; row++) {
+            for (int column = firstX >> Maze.CHUNK_SHIFT; column <= lastX >> Maze.CHUNK_SHIFT; column++) {
+                int chunk = column + row * snapshot.chunkColumns;
+                ChunkLayer layer = chunkLayers.get(chunk);
+                if (layer == null) {
+                    layer = new ChunkLayer(column, row);
+                    chunkLayers.put(chunk, layer);
+                    evictOldChunks();
+                }
+                layer.draw(g2d, snapshot, chunk, cellSize, column * chunkPixels, row * chunkPixels);
+            }
+        }
+        
+        // Power pellets blink, so they are drawn over the layers each frame; there are at most a few in view
+        if (System.currentTimeMillis() % 500 < 250) {
+            g2d.setColor(Color.WHITE);
+            int powerPelletSize = cellSize / 2;
+            for (int y = firstY; y <= lastY; y++) {
+                for (int x = firstX & -Maze.CHUNK_SIZE; x <= lastX; x += Maze.CHUNK_SIZE) {
+                    long bits = snapshot.powerPellets[Maze.wordIndex(snapshot.chunkColumns, x, y)];
+                    for (; bits != 0; bits &= bits - 1) {
+                        int pelletX = (x + Long.numberOfTrailingZeros(bits)) * cellSize + (cellSize - powerPelletSize) / 2;
+                        int pelletY = y * cellSize + (cellSize - powerPelletSize) / 2;
+                        g2d.fillOval(pelletX, pelletY, powerPelletSize, powerPelletSize);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void evictOldChunks() {
+        Iterator<ChunkLayer> layers = chunkLayers.values().iterator();
+        while (chunkLayers.size() > MAX_CACHED_CHUNKS) {
+            layers.next().flush();
+            layers.remove();
+        }
+    }
+    
+    private void drawPacMan(Graphics2D g2d, WorldSnapshot snapshot, int cellSize, float alpha) {
+        int pixelX = interpolate(snapshot.pacManPrevX, snapshot.pacManX, alpha, cellSize);
+        int pixelY = interpolate(snapshot.pacManPrevY, snapshot.pacManY, alpha, cellSize);
+        atlas.drawPacMan(g2d, snapshot.pacManDirection, snapshot.mouthAngle, pixelX, pixelY);
+    }
+    
+    private void drawGhost(Graphics2D g2d, WorldSnapshot snapshot, int i, int cellSize, float alpha) {
+        int pixelX = interpolate(snapshot.ghostPrevX[i], snapshot.ghostX[i], alpha, cellSize);
+        int pixelY = interpolate(snapshot.ghostPrevY[i], snapshot.ghostY[i], alpha, cellSize);
+        
+        int frame;
+        if (snapshot.ghostVulnerable[i]) {
+            // Blinking effect near end of vulnerability
+            if (snapshot.ghostVulnerabilityEnding[i] && System.currentTimeMillis() % 300 < 150) {
+                frame = SpriteAtlas.GHOST_FLASHING;
+            } else {
+                frame = SpriteAtlas.GHOST_FRIGHTENED;
+            }
+        } else {
+            frame = snapshot.ghostTypes[i].ordinal();
+        }
+        atlas.drawGhost(g2d, frame, pixelX, pixelY);
+    }
+    
+    // Pixel position between two grid positions; jumps through wrapping tunnels are not smoothed
+    static int interpolate(int previous, int current, float alpha, int cellSize) {
+        if (Math.abs(current - previous) > 1) {
+            return current * cellSize;
+        }
+        return Math.round((previous + (current - previous) * alpha) * cellSize);
+    }
+    
+    // One chunk of the maze pre-rendered, cut short where the maze ends
+    private static class ChunkLayer {
+        private final int left; // Maze cell at the layer's top left corner
+        private final int top;
+        private VolatileImage image;
+        private BufferedImage fallbackImage; // Used when accelerated images are not available
+        private boolean valid = false;
+        private final long[] shownWalls = new long[Maze.CHUNK_SIZE];   // What the layer currently shows
+        private final long[] shownPellets = new long[Maze.CHUNK_SIZE];
+        
+        ChunkLayer(int column, int row) {
+            this.left = column << Maze.CHUNK_SHIFT;
+            this.top = row << Maze.CHUNK_SHIFT;
+        }
+        
+        void draw(Graphics2D g2d, WorldSnapshot snapshot, int chunk, int cellSize, int x, int y) {
+            GraphicsConfiguration config = g2d.getDeviceConfiguration();
+            int layerWidth = Math.min(Maze.CHUNK_SIZE, snapshot.width - left) * cellSize;
+            int layerHeight = Math.min(Maze.CHUNK_SIZE, snapshot.height - top) * cellSize;
+            
+            if (image == null && fallbackImage == null) {
+                create(config, layerWidth, layerHeight);
+            }
+            
+            if (image != null) {
+                // Accelerated images can lose their contents at any time, e.g. on a display mode change
+                do {
+                    int status = image.validate(config);
+                    if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                        image.flush();
+                        create(config, layerWidth, layerHeight);
+                        if (image == null) {
+                            break;
+                        }
+                    } else if (status == VolatileImage.IMAGE_RESTORED) {
+                        valid = false;
+                    }
+                    update(image, g2d, snapshot, chunk, cellSize);
+                    g2d.drawImage(image, x, y, null);
+                } while (image.contentsLost());
+            }
+            if (image == null) {
+                update(fallbackImage, g2d, snapshot, chunk, cellSize);
+                g2d.drawImage(fallbackImage, x, y, null);
+            }
+        }
+        
+        // Prefer an accelerated image; fall back to a compatible BufferedImage where there is none
+        private void create(GraphicsConfiguration config, int layerWidth, int layerHeight) {
+            image = null;
+            fallbackImage = null;
+            try {
+                image = config.createCompatibleVolatileImage(layerWidth, layerHeight, Transparency.OPAQUE);
+            } catch (RuntimeException e) {
+                image = null;
+            }
+            if (image == null) {
+                fallbackImage = config.createCompatibleImage(layerWidth, layerHeight, Transparency.OPAQUE);
+            }
+            valid = false;
+        }
+        
+        void flush() {
+            if (image != null) {
+                image.flush();
+            }
+            image = null;
+            fallbackImage = null;
+        }
+        
+        private void update(Image layer, Graphics2D target, WorldSnapshot snapshot, int chunk, int cellSize) {
+            // Compared by content, since a restarted game starts its versions from zero again
+            int offset = chunk << Maze.CHUNK_SHIFT;
+            boolean wallsChanged = false;
+            boolean pelletsChanged = false;
+            for (int row = 0; row < Maze.CHUNK_SIZE; row++) {
+                wallsChanged |= shownWalls[row] != snapshot.walls[offset + row];
+                pelletsChanged |= shownPellets[row] != snapshot.pellets[offset + row];
+            }
+            if (valid && !wallsChanged && !pelletsChanged) {
+                return;
+            }
+            
+            Graphics2D layerGraphics = (Graphics2D) layer.getGraphics();
+            try {
+                layerGraphics.setRenderingHints(target.getRenderingHints());
+                if (!valid || wallsChanged) {
+                    paintAll(layerGraphics, snapshot, offset, cellSize, layer.getWidth(null), layer.getHeight(null));
+                } else {
+                    paintPelletChanges(layerGraphics, snapshot, offset, cellSize);
+                }
+            } finally {
+                layerGraphics.dispose();
+            }
+            
+            System.arraycopy(snapshot.walls, offset, shownWalls, 0, Maze.CHUNK_SIZE);
+            System.arraycopy(snapshot.pellets, offset, shownPellets, 0, Maze.CHUNK_SIZE);
+            valid = true;
+        }
+        
+        private void paintAll(Graphics2D g2d, WorldSnapshot snapshot, int offset, int cellSize,
+                              int layerWidth, int layerHeight) {
+            g2d.setColor(Color.BLACK);
+            g2d.fillRect(0, 0, layerWidth, layerHeight);
+            
+            // Draw walls, visiting only the set bits of each row
+            g2d.setColor(Color.BLUE);
+            for (int row = 0; row < Maze.CHUNK_SIZE; row++) {
+                for (long bits = snapshot.walls[offset + row]; bits != 0; bits &= bits - 1) {
+                    g2d.fillRect(Long.numberOfTrailingZeros(bits) * cellSize, row * cellSize, cellSize, cellSize);
+                }
+            }
+            
+            // Draw pellets
+            g2d.setColor(Color.WHITE);
+            for (int row = 0; row < Maze.CHUNK_SIZE; row++) {
+                for (long bits = snapshot.pellets[offset + row]; bits != 0; bits &= bits - 1) {
+                    drawPellet(g2d, Long.numberOfTrailingZeros(bits), row, cellSize);
+                }
+            }
+        }
+        
+        // Only cells whose pellet came or went since the layer was last drawn; usually the one just eaten
+        private void paintPelletChanges(Graphics2D g2d, WorldSnapshot snapshot, int offset, int cellSize) {
+            for (int row = 0; row < Maze.CHUNK_SIZE; row++) {
+                long pellets = snapshot.pellets[offset + row];
+                for (long bits = pellets ^ shownPellets[row]; bits != 0; bits &= bits - 1) {
+                    int column = Long.numberOfTrailingZeros(bits);
+                    if ((pellets & (1L << column)) != 0) {
+                        g2d.setColor(Color.WHITE);
+                        drawPellet(g2d, column, row, cellSize);
+                    } else {
+                        // Pellets only sit on open floor, so erasing is painting the cell black again
+                        g2d.setColor(Color.BLACK);
+                        g2d.fillRect(column * cellSize, row * cellSize, cellSize, cellSize);
+                    }
+                }
+            }
+        }
+        
+        private static void drawPellet(Graphics2D g2d, int column, int row, int cellSize) {
+            int pelletSize = cellSize / 5;
+            int pelletX = column * cellSize + (cellSize - pelletSize) / 2;
+            int pelletY = row * cellSize + (cellSize - pelletSize) / 2;
+            g2d.fillOval(pelletX, pelletY, pelletSize, pelletSize);
+        }
+    }
+}
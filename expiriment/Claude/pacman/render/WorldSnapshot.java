@@ -0,0 +1,126 @@
+package pacman.render;
+
+import java.util.Arrays;
+import java.util.List;
+import pacman.Direction;
+import pacman.Game;
+import pacman.Ghost;
+import pacman.Maze;
+import pacman.PacMan;
+
+// World snapshot - a copy of everything the renderer needs from one tick.
+// Only the game loop writes one, and only while it is not published; after that it is read-only.
+public class WorldSnapshot {
+    private static final int VULNERABILITY_ENDING_TICKS = 2 * Game.TICKS_PER_SECOND; // Ghosts blink for the last 2 seconds
+    
+    public final int width;
+    public final int height;
+    public final int chunkColumns;
+    public final long[] walls;        // Chunked like the maze's bitboards; see Maze.wordIndex
+    public final long[] pellets;
+    public final long[] powerPellets;
+    private final int[] chunkVersions; // Maze version of each chunk held here, -1 if none
+    private Maze capturedMaze;         // Versions only mean something for the same maze
+    private int captureColumns = 0;    // Chunks this far from Pac-Man are kept current; 0 means all
+    private int captureRows = 0;
+    
+    public int pacManX, pacManY;
+    public int pacManPrevX, pacManPrevY;
+    public Direction pacManDirection = Direction.NONE;
+    public int mouthAngle;
+    
+    public final int ghostCount;
+    public final int[] ghostX, ghostY;
+    public final int[] ghostPrevX, ghostPrevY;
+    public final Ghost.GhostType[] ghostTypes;
+    public final boolean[] ghostVulnerable;
+    public final boolean[] ghostVulnerabilityEnding;
+    
+    public int score;
+    public int lives;
+    public int highScore;
+    public boolean gameOver;
+    public boolean gameWon;
+    
+    public WorldSnapshot(int width, int height, int ghostCount) {
+        this.width = width;
+        this.height = height;
+        this.chunkColumns = Maze.chunksAcross(width);
+        int chunks = chunkColumns * Maze.chunksAcross(height);
+        this.walls = new long[chunks << Maze.CHUNK_SHIFT];
+        this.pellets = new long[walls.length];
+        this.powerPellets = new long[walls.length];
+        this.chunkVersions = new int[chunks];
+        this.ghostCount = ghostCount;
+        this.ghostX = new int[ghostCount];
+        this.ghostY = new int[ghostCount];
+        this.ghostPrevX = new int[ghostCount];
+        this.ghostPrevY = new int[ghostCount];
+        this.ghostTypes = new Ghost.GhostType[ghostCount];
+        this.ghostVulnerable = new boolean[ghostCount];
+        this.ghostVulnerabilityEnding = new boolean[ghostCount];
+    }
+    
+    // Only keep the maze current this many cells either side of Pac-Man, which must cover whatever a camera
+    // following him can show. Chunks further out are left as they were, so a huge maze costs no more to
+    // capture than a small one.
+    public void setCaptureRange(int columns, int rows) {
+        this.captureColumns = columns;
+        this.captureRows = rows;
+    }
+    
+    public void capture(Game game) {
+        Maze maze = game.getMaze();
+        PacMan pacMan = game.getPacMan();
+        List<Ghost> ghosts = game.getGhosts();
+        
+        if (maze != capturedMaze) {
+            Arrays.fill(chunkVersions, -1);
+            capturedMaze = maze;
+        }
+        
+        // A chunk is only copied when it changed since this buffer last held it
+        int firstColumn = 0;
+        int lastColumn = chunkColumns - 1;
+        int firstRow = 0;
+        int lastRow = chunkVersions.length / chunkColumns - 1;
+        if (captureColumns > 0) {
+            firstColumn = Math.max(firstColumn, (pacMan.getX() - captureColumns) >> Maze.CHUNK_SHIFT);
+            lastColumn = Math.min(lastColumn, (pacMan.getX() + captureColumns) >> Maze.CHUNK_SHIFT);
+            firstRow = Math.max(firstRow, (pacMan.getY() - captureRows) >> Maze.CHUNK_SHIFT);
+            lastRow = Math.min(lastRow, (pacMan.getY() + captureRows) >> Maze.CHUNK_SHIFT);
+        }
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                int chunk = column + row * chunkColumns;
+                if (chunkVersions[chunk] != maze.getChunkVersion(chunk)) {
+                    maze.copyChunk(chunk, walls, pellets, powerPellets);
+                    chunkVersions[chunk] = maze.getChunkVersion(chunk);
+                }
+            }
+        }
+        
+        pacManX = pacMan.getX();
+        pacManY = pacMan.getY();
+        pacManPrevX = pacMan.getPrevX();
+        pacManPrevY = pacMan.getPrevY();
+        pacManDirection = pacMan.getDirection();
+        mouthAngle = pacMan.getMouthAngle();
+        
+        for (int i = 0; i < ghostCount; i++) {
+            Ghost ghost = ghosts.get(i);
+            ghostX[i] = ghost.getX();
+            ghostY[i] = ghost.getY();
+            ghostPrevX[i] = ghost.getPrevX();
+            ghostPrevY[i] = ghost.getPrevY();
+            ghostTypes[i] = ghost.getType();
+            ghostVulnerable[i] = ghost.isVulnerable();
+            ghostVulnerabilityEnding[i] = ghost.getVulnerableTicksLeft() < VULNERABILITY_ENDING_TICKS;
+        }
+        
+        score = game.getScore();
+        lives = game.getLives();
+        gameOver = game.isGameOver();
+        gameWon = game.isGameWon();
+    }
+}
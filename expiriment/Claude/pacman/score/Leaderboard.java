@@ -0,0 +1,313 @@
+package pacman.score;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import pacman.FileSync;
+
+// Persistent top-N leaderboard. The file is a header followed by an append-only log of checksummed
+// records, one per entry that made the board. Reading stops at the first record that is cut short or
+// fails its checksum, so a crash mid-append loses at most that entry and never the file.
+// All writes happen on one background thread. Once the log holds several times more records than the
+// board keeps, that thread compacts it: it writes the current board to a temp file of its own and renames
+// that over the log in one atomic step, then syncs the directory so the rename itself survives a crash.
+public class Leaderboard {
+    private static final int MAGIC = 0x50414C42;  // "PALB"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 8; // Payload length, then CRC32 of the payload
+    private static final int MAX_NAME_BYTES = 64;
+    private static final int FIXED_PAYLOAD_BYTES = 8 + 8 + 4 + 4 + 8 + 2; // Everything before the name
+    private static final int COMPACT_FACTOR = 4;
+    
+    private final Path file;
+    private final int capacity;
+    private final List<LeaderboardEntry> entries = new ArrayList<>(); // Best first, guarded by this
+    private volatile int highScore = 0;
+    
+    // Owned by the writer thread
+    private final ExecutorService writer;
+    private final List<LeaderboardEntry> saved = new ArrayList<>(); // The board as written so far, which compaction keeps
+    private FileChannel log;
+    private long validBytes;      // Length of the intact part of the file: found at load, grown by each append
+    private int recordsInLog;
+    
+    private Leaderboard(Path file, int capacity) {
+        this.file = file;
+        this.capacity = capacity;
+        this.writer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "leaderboard-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Loads the board with a single mapped read of the file; a missing or unreadable file gives an empty board
+    public static Leaderboard open(Path file, int capacity) {
+        Leaderboard leaderboard = new Leaderboard(file, capacity);
+        try {
+            leaderboard.load();
+        } catch (IOException e) {
+            System.err.println("Error loading leaderboard: " + e.getMessage());
+        }
+        return leaderboard;
+    }
+    
+    public int getHighScore() {
+        return highScore;
+    }
+    
+    public synchronized List<LeaderboardEntry> getEntries() {
+        return Collections.unmodifiableList(new ArrayList<>(entries));
+    }
+    
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+    
+    // Whether a game with this score would make the board
+    public synchronized boolean qualifies(int score) {
+        return entries.size() < capacity || score > entries.get(entries.size() - 1).getScore();
+    }
+    
+    // Puts the entry on the board right away and saves it in the background. Returns false, and
+    // saves nothing, if it doesn't make the board.
+    public boolean submit(LeaderboardEntry entry) {
+        if (!insert(entry)) {
+            return false;
+        }
+        writer.execute(() -> {
+            try {
+                append(entry);
+            } catch (IOException e) {
+                System.err.println("Error saving leaderboard: " + e.getMessage());
+            }
+        });
+        return true;
+    }
+    
+    // Completes once everything submitted so far is on disk
+    public CompletableFuture<Void> flush() {
+        return CompletableFuture.runAsync(() -> { }, writer);
+    }
+    
+    // Finishes pending writes and closes the file
+    public void close() {
+        writer.execute(this::closeLog);
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private synchronized boolean insert(LeaderboardEntry entry) {
+        if (!insertRanked(entries, entry, capacity)) {
+            return false;
+        }
+        highScore = entries.get(0).getScore();
+        return true;
+    }
+    
+    private static boolean insertRanked(List<LeaderboardEntry> board, LeaderboardEntry entry, int capacity) {
+        int position = board.size();
+        while (position > 0 && entry.ranksAbove(board.get(position - 1))) {
+            position--;
+        }
+        if (position >= capacity) {
+            return false;
+        }
+        board.add(position, entry);
+        if (board.size() > capacity) {
+            board.remove(board.size() - 1);
+        }
+        return true;
+    }
+    
+    private void load() throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException e) {
+            return;
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            // Not a leaderboard we can read; it will be replaced on the first save
+            System.err.println("Ignoring unreadable leaderboard file: " + file);
+            return;
+        }
+        
+        CRC32 crc = new CRC32();
+        int records = 0;
+        while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+            int start = buffer.position();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            ByteBuffer payload = buffer.slice(buffer.position(), length);
+            crc.reset();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                buffer.position(start);
+                break;
+            }
+            // A record that passes its checksum but doesn't add up was written wrong; skip just that one
+            LeaderboardEntry entry = decode(payload);
+            if (entry != null) {
+                insert(entry);
+                insertRanked(saved, entry, capacity);
+            }
+            buffer.position(buffer.position() + length);
+            records++;
+        }
+        validBytes = buffer.position();
+        recordsInLog = records;
+    }
+    
+    private void append(LeaderboardEntry entry) throws IOException {
+        if (log == null) {
+            openLog();
+        }
+        log.write(encodeRecord(entry));
+        log.force(false);
+        validBytes = log.position();
+        recordsInLog++;
+        insertRanked(saved, entry, capacity);
+        
+        if (recordsInLog > capacity * COMPACT_FACTOR) {
+            compact();
+        }
+    }
+    
+    // Opens the log for appending, dropping a torn tail left by a crash or starting a fresh file
+    private void openLog() throws IOException {
+        log = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (validBytes < HEADER_BYTES) {
+            log.truncate(0);
+            log.write(header());
+            log.force(true);
+            FileSync.syncDirectory(file.toAbsolutePath().getParent());
+            recordsInLog = 0;
+        } else if (log.size() > validBytes) {
+            log.truncate(validBytes);
+        }
+        log.position(log.size());
+    }
+    
+    private void compact() throws IOException {
+        // Entries still queued behind this one are appended after the rename, so only saved ones go in
+        List<LeaderboardEntry> board = saved;
+        // A name of our own, so another process compacting the same board can't write into it
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                out.write(header());
+                for (LeaderboardEntry entry : board) {
+                    out.write(encodeRecord(entry));
+                }
+                out.force(true);
+            }
+            
+            // Some platforms can't rename over an open file. Should the rename fail, the next append reopens
+            // the old log, which validBytes still describes, so nothing in it is cut off.
+            closeLog();
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        FileSync.syncDirectory(directory);
+        validBytes = Files.size(file);
+        recordsInLog = board.size();
+        openLog();
+    }
+    
+    private void closeLog() {
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                System.err.println("Error closing leaderboard: " + e.getMessage());
+            }
+            log = null;
+        }
+    }
+    
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).flip();
+        return header;
+    }
+    
+    private static ByteBuffer encodeRecord(LeaderboardEntry entry) {
+        // Cut long names short on a character boundary: the encoder stops before a character that won't fit
+        ByteBuffer name = ByteBuffer.allocate(MAX_NAME_BYTES);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        encoder.encode(CharBuffer.wrap(entry.getName()), name, true);
+        name.flip();
+        int nameLength = name.remaining();
+        int length = FIXED_PAYLOAD_BYTES + nameLength;
+        
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + length);
+        record.putInt(length).putInt(0);
+        record.putLong(entry.getTimestamp())
+                .putLong(entry.getSeed())
+                .putInt(entry.getScore())
+                .putInt(entry.getLevel())
+                .putLong(entry.getDurationMillis())
+                .putShort((short) nameLength)
+                .put(name);
+        
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), RECORD_HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+    
+    // Null when the lengths in the payload don't match its size
+    private static LeaderboardEntry decode(ByteBuffer payload) {
+        if (payload.remaining() < FIXED_PAYLOAD_BYTES) {
+            return null;
+        }
+        long timestamp = payload.getLong();
+        long seed = payload.getLong();
+        int score = payload.getInt();
+        int level = payload.getInt();
+        long durationMillis = payload.getLong();
+        int nameLength = payload.getShort() & 0xFFFF;
+        if (nameLength != payload.remaining() || nameLength > MAX_NAME_BYTES) {
+            return null;
+        }
+        byte[] name = new byte[nameLength];
+        payload.get(name);
+        return new LeaderboardEntry(new String(name, StandardCharsets.UTF_8), score, level, durationMillis, seed, timestamp);
+    }
+}
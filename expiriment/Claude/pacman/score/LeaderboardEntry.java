@@ -0,0 +1,57 @@
+package pacman.score;
+
+// One finished game on the leaderboard; immutable
+public class LeaderboardEntry {
+    private final String name;
+    private final int score;
+    private final int level;
+    private final long durationMillis;
+    private final long seed;
+    private final long timestamp; // When the game ended, in epoch milliseconds
+    
+    public LeaderboardEntry(String name, int score, int level, long durationMillis, long seed, long timestamp) {
+        this.name = name;
+        this.score = score;
+        this.level = level;
+        this.durationMillis = durationMillis;
+        this.seed = seed;
+        this.timestamp = timestamp;
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int getLevel() {
+        return level;
+    }
+    
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public long getTimestamp() {
+        return timestamp;
+    }
+    
+    // Higher scores first; on a tie the earlier game keeps its place
+    boolean ranksAbove(LeaderboardEntry other) {
+        if (score != other.score) {
+            return score > other.score;
+        }
+        return timestamp < other.timestamp;
+    }
+    
+    @Override
+    public String toString() {
+        return String.format("%s %d (level %d, %.1f s, seed %d)", name, score, level, durationMillis / 1000.0, seed);
+    }
+}
@@ -0,0 +1,81 @@
+package pacman.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.BitBfsPathfinder;
+import pacman.Direction;
+import pacman.Game;
+import pacman.Maze;
+import pacman.MazeGenerator;
+import pacman.Pathfinder;
+import pacman.PathfinderType;
+
+// Bit-parallel BFS against the queue BFS it stands in for, with the scalar and the Vector API layer
+// kernels. On the 1024x1024 maze the pairs are at most 40 steps apart each way, as a ghost's targets are.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BitBfsBenchmark {
+    private static final int QUERIES = 256; // Power of two, so the query index can wrap with a mask
+    private static final int REACH = 40;
+    
+    @Param({"STANDARD", "1024"})
+    public String maze;
+    
+    @Param({"BFS", "BIT_BFS", "BIT_BFS_VECTOR"})
+    public String engine;
+    
+    private Pathfinder pathfinder;
+    private final int[] fromX = new int[QUERIES];
+    private final int[] fromY = new int[QUERIES];
+    private final int[] toX = new int[QUERIES];
+    private final int[] toY = new int[QUERIES];
+    private int next = 0;
+    
+    @Setup
+    public void setUp() {
+        Maze board = maze.equals("STANDARD") ? Game.newStandardMaze()
+                : new MazeGenerator(Integer.parseInt(maze), Integer.parseInt(maze)).generate(1);
+        board.setPathOracleEnabled(false);
+        if (engine.equals("BIT_BFS_VECTOR")) {
+            pathfinder = new BitBfsPathfinder(board, new VectorLayerKernel());
+        } else {
+            pathfinder = board.getPathfinder(PathfinderType.valueOf(engine));
+        }
+        
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            int[] from = PathfindingBenchmark.randomOpenCell(board, random);
+            int x;
+            int y;
+            do {
+                x = from[0] + random.nextInt(2 * REACH + 1) - REACH;
+                y = from[1] + random.nextInt(2 * REACH + 1) - REACH;
+            } while (x < 0 || x >= board.getWidth() || y < 0 || y >= board.getHeight() || board.isWall(x, y));
+            fromX[i] = from[0];
+            fromY[i] = from[1];
+            toX[i] = x;
+            toY[i] = y;
+        }
+    }
+    
+    @Benchmark
+    public Direction firstStep() {
+        int i = next++ & (QUERIES - 1);
+        return pathfinder.firstStep(fromX[i], fromY[i], toX[i], toY[i]);
+    }
+}
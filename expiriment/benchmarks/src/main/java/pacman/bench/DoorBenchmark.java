@@ -0,0 +1,123 @@
+package pacman.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Game;
+import pacman.Ghost;
+import pacman.Maze;
+import pacman.MazeGenerator;
+import pacman.PacMan;
+import pacman.PacManController;
+import pacman.PathfinderType;
+import pacman.RandomWalkController;
+
+// Game ticks on a level with doors: corridor cells that open and close as the game runs. Every flip
+// invalidates whatever the backends built from the walls, so this shows which of them keep a steady tick
+// when the layout keeps changing.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DoorBenchmark {
+    private static final int DOORS = 16;
+    
+    @Param({"A_STAR", "JUNCTION", "INCREMENTAL"})
+    public String ghostPathfinder;
+    
+    // STANDARD or the side of a generated square maze
+    @Param({"STANDARD", "120"})
+    public String maze;
+    
+    // Ticks between door flips
+    @Param({"4", "30"})
+    public int doorPeriod;
+    
+    private Maze template;
+    private int[] doorX;
+    private int[] doorY;
+    private Game game;
+    private PacManController controller;
+    private long seed = 0;
+    
+    @Setup
+    public void setUp() {
+        if (maze.equals("STANDARD")) {
+            template = Game.newStandardMaze();
+        } else {
+            int size = Integer.parseInt(maze);
+            template = new MazeGenerator(size, size).generate(1);
+        }
+        template.setPathOracleEnabled(false);
+        
+        // Doors go in plain corridors, so a closed one never walls anything in for good on its own
+        List<int[]> corridors = new ArrayList<>();
+        for (int y = 0; y < template.getHeight(); y++) {
+            for (int x = 0; x < template.getWidth(); x++) {
+                if (!template.isWall(x, y) && Integer.bitCount(template.openNeighbors(x, y)) == 2) {
+                    corridors.add(new int[] {x, y});
+                }
+            }
+        }
+        Random random = new Random(42);
+        doorX = new int[DOORS];
+        doorY = new int[DOORS];
+        for (int i = 0; i < DOORS; i++) {
+            int[] cell = corridors.get(random.nextInt(corridors.size()));
+            doorX[i] = cell[0];
+            doorY[i] = cell[1];
+        }
+        newGame();
+    }
+    
+    @Benchmark
+    public int step() {
+        if (game.isFinished()) {
+            newGame();
+        }
+        long tick = game.getTick();
+        if (tick % doorPeriod == 0) {
+            flipDoor((int) (tick / doorPeriod % DOORS));
+        }
+        return game.step(controller.nextInput(game));
+    }
+    
+    // Doors don't close on anyone standing in them
+    private void flipDoor(int door) {
+        int x = doorX[door];
+        int y = doorY[door];
+        for (PacMan pacMan : game.getPacMen()) {
+            if (pacMan.getX() == x && pacMan.getY() == y) {
+                return;
+            }
+        }
+        for (Ghost ghost : game.getGhosts()) {
+            if (ghost.getX() == x && ghost.getY() == y) {
+                return;
+            }
+        }
+        Maze current = game.getMaze();
+        current.setWall(x, y, !current.isWall(x, y));
+    }
+    
+    private void newGame() {
+        seed++;
+        game = new Game(new Maze(template), seed);
+        game.setGhostPathfinder(PathfinderType.valueOf(ghostPathfinder));
+        controller = new RandomWalkController(seed);
+    }
+}
@@ -0,0 +1,76 @@
+package pacman.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Direction;
+import pacman.Maze;
+import pacman.MazeGenerator;
+import pacman.Pathfinder;
+import pacman.PathfinderType;
+
+// Long-range ghost path queries on generated mazes of growing size. The pairs are always 96 to 160 steps
+// apart as the crow flies, beyond one search window, so latency should stay flat however big the maze is.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HierarchicalBenchmark {
+    private static final int QUERIES = 256; // Power of two, so the query index can wrap with a mask
+    private static final int MIN_DISTANCE = 96;
+    private static final int MAX_DISTANCE = 160;
+    
+    @Param({"256", "1024", "2048"})
+    public int size;
+    
+    private Pathfinder pathfinder;
+    private final int[] fromX = new int[QUERIES];
+    private final int[] fromY = new int[QUERIES];
+    private final int[] toX = new int[QUERIES];
+    private final int[] toY = new int[QUERIES];
+    private int next = 0;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = new MazeGenerator(size, size).generate(1);
+        maze.setPathOracleEnabled(false);
+        pathfinder = maze.getPathfinder(PathfinderType.HIERARCHICAL);
+        
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            int[] from = PathfindingBenchmark.randomOpenCell(maze, random);
+            int x;
+            int y;
+            do {
+                x = from[0] + random.nextInt(2 * MAX_DISTANCE + 1) - MAX_DISTANCE;
+                y = from[1] + random.nextInt(2 * MAX_DISTANCE + 1) - MAX_DISTANCE;
+            } while (Math.abs(x - from[0]) + Math.abs(y - from[1]) < MIN_DISTANCE
+                    || Math.abs(x - from[0]) + Math.abs(y - from[1]) > MAX_DISTANCE || maze.isWall(x, y));
+            fromX[i] = from[0];
+            fromY[i] = from[1];
+            toX[i] = x;
+            toY[i] = y;
+            
+            // First use of a cluster works out its entrance costs; keep that out of the measurement
+            pathfinder.firstStep(fromX[i], fromY[i], toX[i], toY[i]);
+        }
+    }
+    
+    @Benchmark
+    public Direction firstStep() {
+        int i = next++ & (QUERIES - 1);
+        return pathfinder.firstStep(fromX[i], fromY[i], toX[i], toY[i]);
+    }
+}
@@ -0,0 +1,50 @@
+package pacman.bench;
+
+// The win checks of the other experiments, copied as they are. Those live in the default package,
+// where they can't be imported, and their class names clash; their data layouts are kept
+// (AIStudio int[row][column] cell codes, Cursor and Grok boolean[x][y] grids) so the scans
+// walk memory the way the originals do.
+final class LegacyWinScans {
+    // AIStudio cell codes
+    static final int PELLET = 0;
+    static final int WALL = 1;
+    static final int EMPTY = 2;
+    static final int POWER_PELLET = 3;
+    
+    private LegacyWinScans() {
+    }
+    
+    // AIStudio GamePanel.isGameWon
+    static boolean aiStudioIsGameWon(int[][] maze, int width, int height) {
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
+                if (maze[i][j] == 0 || maze[i][j] == 3) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    // Cursor Maze.areAllDotsEaten
+    static boolean cursorAreAllDotsEaten(boolean[][] dots, boolean[][] powerPellets, int width, int height) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (dots[x][y] || powerPellets[x][y]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+    
+    // Grok Maze.allPelletsEaten
+    static boolean grokAllPelletsEaten(boolean[][] pellets, int width, int height) {
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (pellets[x][y]) return false;
+            }
+        }
+        return true;
+    }
+}
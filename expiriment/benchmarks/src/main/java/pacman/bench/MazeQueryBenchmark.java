@@ -0,0 +1,68 @@
+package pacman.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Game;
+import pacman.Maze;
+
+// Cell queries over the whole standard maze; each operation visits every cell once
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeQueryBenchmark {
+    private Maze maze;
+    
+    @Setup
+    public void setUp() {
+        maze = Game.newStandardMaze();
+    }
+    
+    @Benchmark
+    public int isWall() {
+        int count = 0;
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < maze.getWidth(); x++) {
+                if (maze.isWall(x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int hasPellet() {
+        int count = 0;
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < maze.getWidth(); x++) {
+                if (maze.hasPellet(x, y) || maze.hasPowerPellet(x, y)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+    
+    @Benchmark
+    public int openNeighbors() {
+        int sum = 0;
+        for (int y = 0; y < maze.getHeight(); y++) {
+            for (int x = 0; x < maze.getWidth(); x++) {
+                sum += maze.openNeighbors(x, y);
+            }
+        }
+        return sum;
+    }
+}
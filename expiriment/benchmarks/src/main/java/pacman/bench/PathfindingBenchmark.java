@@ -0,0 +1,84 @@
+package pacman.bench;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Direction;
+import pacman.Game;
+import pacman.Maze;
+import pacman.PathOracle;
+import pacman.Pathfinder;
+import pacman.PathfinderType;
+
+// One ghost path query, as made by Ghost.findPathToTarget: the first step from one open cell
+// to another, answered by the path table or by one of the search backends
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindingBenchmark {
+    private static final int QUERIES = 1024; // Power of two, so the query index can wrap with a mask
+    
+    @Param({"ORACLE", "BFS", "BIT_BFS", "A_STAR", "JUMP_POINT", "JUNCTION"})
+    public String backend;
+    
+    private PathOracle oracle;
+    private Pathfinder pathfinder;
+    private final int[] fromX = new int[QUERIES];
+    private final int[] fromY = new int[QUERIES];
+    private final int[] toX = new int[QUERIES];
+    private final int[] toY = new int[QUERIES];
+    private int next = 0;
+    
+    @Setup
+    public void setUp() {
+        Maze maze = Game.newStandardMaze();
+        if (backend.equals("ORACLE")) {
+            oracle = maze.getPathOracle();
+        } else {
+            pathfinder = maze.getPathfinder(PathfinderType.valueOf(backend));
+        }
+        
+        // Same random pairs of open cells for every backend
+        Random random = new Random(42);
+        for (int i = 0; i < QUERIES; i++) {
+            int[] from = randomOpenCell(maze, random);
+            int[] to = randomOpenCell(maze, random);
+            fromX[i] = from[0];
+            fromY[i] = from[1];
+            toX[i] = to[0];
+            toY[i] = to[1];
+        }
+    }
+    
+    @Benchmark
+    public Direction firstStep() {
+        int i = next++ & (QUERIES - 1);
+        if (oracle != null) {
+            return oracle.nextStep(fromX[i], fromY[i], toX[i], toY[i]);
+        }
+        return pathfinder.firstStep(fromX[i], fromY[i], toX[i], toY[i]);
+    }
+    
+    static int[] randomOpenCell(Maze maze, Random random) {
+        while (true) {
+            int x = random.nextInt(maze.getWidth());
+            int y = random.nextInt(maze.getHeight());
+            if (!maze.isWall(x, y)) {
+                return new int[] {x, y};
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package pacman.bench;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Game;
+import pacman.PacManController;
+import pacman.RandomWalkController;
+import pacman.render.WorldRenderer;
+import pacman.render.WorldSnapshot;
+
+// Drawing one frame into an off-screen image the size of the game panel, with the same
+// anti-aliasing the panel uses, plus the per-tick snapshot copy that feeds it
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenderBenchmark {
+    private static final int CELL_SIZE = 20;
+    private static final int WARM_UP_TICKS = 300; // Far enough in that some pellets are gone
+    
+    private Game game;
+    private WorldSnapshot snapshot;
+    private WorldRenderer renderer;
+    private BufferedImage image;
+    private Graphics2D g2d;
+    
+    @Setup
+    public void setUp() {
+        game = new Game(Game.newStandardMaze(), 1);
+        PacManController controller = new RandomWalkController(1);
+        for (int i = 0; i < WARM_UP_TICKS && !game.isFinished(); i++) {
+            game.step(controller.nextInput(game));
+        }
+        
+        snapshot = new WorldSnapshot(Game.GRID_WIDTH, Game.GRID_HEIGHT, game.getGhosts().size());
+        snapshot.capture(game);
+        renderer = new WorldRenderer();
+        
+        image = new BufferedImage(Game.GRID_WIDTH * CELL_SIZE, Game.GRID_HEIGHT * CELL_SIZE,
+                BufferedImage.TYPE_INT_RGB);
+        g2d = image.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        g2d.dispose();
+    }
+    
+    @Benchmark
+    public BufferedImage drawWorld() {
+        renderer.draw(g2d, snapshot, CELL_SIZE, 0.5f);
+        return image;
+    }
+    
+    @Benchmark
+    public WorldSnapshot captureSnapshot() {
+        snapshot.capture(game);
+        return snapshot;
+    }
+}
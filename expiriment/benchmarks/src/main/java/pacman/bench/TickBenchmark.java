@@ -0,0 +1,67 @@
+package pacman.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Game;
+import pacman.Maze;
+import pacman.PacManController;
+import pacman.PathfinderType;
+import pacman.RandomWalkController;
+
+// One full logic tick - the Game.step call the engine's update makes, with a random walk at the
+// controls. A finished game is replaced inline, which costs one maze copy every ~1600 ticks. The ghost
+// count shows how each backend scales to swarm games.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TickBenchmark {
+    @Param({"ORACLE", "BFS", "A_STAR", "JUMP_POINT", "JUNCTION", "FLOW_FIELD", "INCREMENTAL"})
+    public String ghostPathfinder;
+    
+    @Param({"4", "400"})
+    public int ghosts;
+    
+    private Maze template;
+    private Game game;
+    private PacManController controller;
+    private long seed = 0;
+    
+    @Setup
+    public void setUp() {
+        template = Game.newStandardMaze();
+        if (!ghostPathfinder.equals("ORACLE")) {
+            template.setPathOracleEnabled(false);
+        }
+        newGame();
+    }
+    
+    @Benchmark
+    public int step() {
+        if (game.isFinished()) {
+            newGame();
+        }
+        return game.step(controller.nextInput(game));
+    }
+    
+    private void newGame() {
+        seed++;
+        game = new Game(new Maze(template), seed, 1, ghosts);
+        if (!ghostPathfinder.equals("ORACLE")) {
+            game.setGhostPathfinder(PathfinderType.valueOf(ghostPathfinder));
+        }
+        controller = new RandomWalkController(seed);
+    }
+}
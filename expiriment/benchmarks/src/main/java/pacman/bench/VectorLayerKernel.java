@@ -0,0 +1,35 @@
+package pacman.bench;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import pacman.BitBfsPathfinder;
+
+// BFS layer kernel on the Vector API - the scalar kernel's word step, as many words at a time as the CPU's
+// widest vectors hold. Lives here rather than in the game because jdk.incubator.vector has to be added to
+// both javac and the JVM; the forks get it from the benchmarks' JMH settings.
+public class VectorLayerKernel implements BitBfsPathfinder.LayerKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+    
+    @Override
+    public long expand(long[] frontier, long[] next, long[] reached, long[] open, int from, int to, int stride) {
+        LongVector any = LongVector.zero(SPECIES);
+        int i = from;
+        for (int end = from + SPECIES.loopBound(to - from); i < end; i += SPECIES.length()) {
+            LongVector cell = LongVector.fromArray(SPECIES, frontier, i);
+            LongVector spread = cell.lanewise(VectorOperators.LSHL, 1)
+                    .or(cell.lanewise(VectorOperators.LSHR, 1))
+                    .or(LongVector.fromArray(SPECIES, frontier, i - 1).lanewise(VectorOperators.LSHR, 63))
+                    .or(LongVector.fromArray(SPECIES, frontier, i + 1).lanewise(VectorOperators.LSHL, 63))
+                    .or(LongVector.fromArray(SPECIES, frontier, i - stride))
+                    .or(LongVector.fromArray(SPECIES, frontier, i + stride));
+            LongVector seen = LongVector.fromArray(SPECIES, reached, i);
+            LongVector grown = spread.and(LongVector.fromArray(SPECIES, open, i)).and(seen.not());
+            grown.intoArray(next, i);
+            seen.or(grown).intoArray(reached, i);
+            any = any.or(grown);
+        }
+        return any.reduceLanes(VectorOperators.OR) | BitBfsPathfinder.SCALAR.expand(frontier, next, reached, open, i,
+                to, stride);
+    }
+}
@@ -0,0 +1,106 @@
+package pacman.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pacman.Game;
+import pacman.Maze;
+
+// The per-tick "all pellets eaten?" check of each experiment, on the same board. At the start the
+// grid scans stop at the first pellet; with one pellet left in the bottom-right corner they walk
+// nearly the whole grid, which is what they cost every tick near the end of a game. This tree keeps
+// a running count instead.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinConditionBenchmark {
+    @Param({"START", "LAST_PELLET"})
+    public String board;
+    
+    private int width;
+    private int height;
+    private Maze maze;
+    private int[][] cells;            // AIStudio layout, [row][column]
+    private boolean[][] dots;         // Cursor and Grok layout, [x][y]
+    private boolean[][] powerPellets;
+    
+    @Setup
+    public void setUp() {
+        maze = Game.newStandardMaze();
+        width = maze.getWidth();
+        height = maze.getHeight();
+        
+        if (board.equals("LAST_PELLET")) {
+            // Eat everything but the last open cell in row-major order
+            int lastX = -1;
+            int lastY = -1;
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (maze.hasPellet(x, y) || maze.hasPowerPellet(x, y)) {
+                        lastX = x;
+                        lastY = y;
+                    }
+                }
+            }
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    if (x != lastX || y != lastY) {
+                        maze.eatPellet(x, y);
+                        maze.eatPowerPellet(x, y);
+                    }
+                }
+            }
+        }
+        
+        cells = new int[height][width];
+        dots = new boolean[width][height];
+        powerPellets = new boolean[width][height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                dots[x][y] = maze.hasPellet(x, y);
+                powerPellets[x][y] = maze.hasPowerPellet(x, y);
+                if (maze.isWall(x, y)) {
+                    cells[y][x] = LegacyWinScans.WALL;
+                } else if (dots[x][y]) {
+                    cells[y][x] = LegacyWinScans.PELLET;
+                } else if (powerPellets[x][y]) {
+                    cells[y][x] = LegacyWinScans.POWER_PELLET;
+                } else {
+                    cells[y][x] = LegacyWinScans.EMPTY;
+                }
+            }
+        }
+    }
+    
+    @Benchmark
+    public boolean aiStudioIsGameWon() {
+        return LegacyWinScans.aiStudioIsGameWon(cells, width, height);
+    }
+    
+    @Benchmark
+    public boolean cursorAreAllDotsEaten() {
+        return LegacyWinScans.cursorAreAllDotsEaten(dots, powerPellets, width, height);
+    }
+    
+    @Benchmark
+    public boolean grokAllPelletsEaten() {
+        return LegacyWinScans.grokAllPelletsEaten(dots, width, height);
+    }
+    
+    @Benchmark
+    public boolean claudeRemainingPellets() {
+        return maze.getRemainingPellets() == 0;
+    }
+}
@@ -0,0 +1,52 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import pacman.Game;
+import pacman.RandomWalkController;
+import pacman.Recording;
+
+// The game loop hands a finished game to the window exactly once, whatever the player does after
+class GameEngineTest {
+    @Test
+    void finishedGameIsRecordedOnce() throws InterruptedException {
+        Game game = new Game(Game.newStandardMaze(), 3);
+        RandomWalkController controller = new RandomWalkController(3);
+        while (!game.isFinished() && game.getTick() < 20_000) {
+            game.step(controller.nextInput(game));
+        }
+        assertTrue(game.isFinished());
+        
+        AtomicInteger ended = new AtomicInteger();
+        CountDownLatch first = new CountDownLatch(1);
+        GameEngine engine = new GameEngine(new GameView() {
+            @Override
+            public void gameEnded(Game game, Recording recording) {
+                ended.incrementAndGet();
+                first.countDown();
+            }
+            
+            @Override
+            public void requestFrame() {
+            }
+            
+            @Override
+            public int getHighScore() {
+                return 0;
+            }
+        }, game, 1000);
+        engine.startGame();
+        assertTrue(first.await(5, TimeUnit.SECONDS));
+        
+        // Pausing and resuming over the game over screen, as ESC does
+        for (int i = 0; i < 5; i++) {
+            engine.pauseGame();
+            engine.resumeGame();
+        }
+        Thread.sleep(200);
+        assertEquals(1, ended.get());
+    }
+}
@@ -0,0 +1,116 @@
+package pacman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// Tables read back from the cache directory have to be the ones PathOracle builds, and a file that isn't
+// for the maze asking has to be rebuilt rather than used
+class PathOracleCacheTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void tableRoundTripsThroughTheFile() throws IOException {
+        Maze maze = Game.newStandardMaze();
+        new PathOracleCache(directory).get(maze);
+        assertEquals(1, files().size());
+        
+        // A new cache has nothing loaded, so this one comes from the file
+        assertSameTable(new PathOracle(maze), new PathOracleCache(directory).get(Game.newStandardMaze()));
+    }
+    
+    @Test
+    void mazesWithOneLayoutShareATable() {
+        PathOracleCache cache = new PathOracleCache(directory);
+        assertSame(cache.get(Game.newStandardMaze()), cache.get(Game.newStandardMaze()));
+    }
+    
+    @Test
+    void callersAtOnceShareOneTable() throws InterruptedException {
+        PathOracleCache cache = new PathOracleCache(directory);
+        PathOracle[] tables = new PathOracle[8];
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[tables.length];
+        for (int i = 0; i < threads.length; i++) {
+            int index = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                tables[index] = cache.get(new MazeGenerator(101, 101).generate(1));
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (PathOracle table : tables) {
+            assertSame(tables[0], table);
+        }
+    }
+    
+    @Test
+    void fileForAnotherLayoutUnderTheSameNameIsRebuilt() throws IOException {
+        // Same size and number of open cells, so only the walls tell the two tables apart
+        Maze maze = Game.newStandardMaze();
+        Maze other = new Maze(maze);
+        int[] open = PathfinderTest.openCell(other, new Random(1));
+        other.setWall(open[0], open[1], true);
+        other.setWall(0, 0, false);
+        
+        new PathOracleCache(directory).get(other);
+        Path file = files().get(0);
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.putLong(8, maze.getLayoutHash());
+        Path taken = directory.resolve(String.format("%016x.paths", maze.getLayoutHash()));
+        Files.write(taken, bytes.array());
+        Files.delete(file);
+        
+        assertSameTable(new PathOracle(maze), new PathOracleCache(directory).get(maze));
+        assertNotEquals(bytes, ByteBuffer.wrap(Files.readAllBytes(taken)).order(ByteOrder.LITTLE_ENDIAN));
+    }
+    
+    @Test
+    void truncatedFileIsRebuilt() throws IOException {
+        Maze maze = Game.newStandardMaze();
+        new PathOracleCache(directory).get(maze);
+        Path file = files().get(0);
+        long size = Files.size(file);
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+        
+        assertSameTable(new PathOracle(maze), new PathOracleCache(directory).get(maze));
+        assertEquals(size, Files.size(file));
+        assertEquals(List.of(file), files());
+    }
+    
+    private static void assertSameTable(PathOracle expected, PathOracle actual) {
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        assertEquals(expected.getDistances(), actual.getDistances());
+        assertEquals(expected.getNextSteps(), actual.getNextSteps());
+    }
+    
+    private List<Path> files() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package pacman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+// Every ghost pathfinder has to take the first step of a shortest path, as a plain BFS over the whole maze
+// finds it, on mazes bigger than one search window as well as on the standard one
+class PathfinderTest {
+    private static final int NEAR = 60; // Pairs at most this far apart along each axis
+    private static final int PAIRS = 250;
+    
+    @Test
+    void junctionGraphSearchTakesShortestSteps() {
+        checkAllMazes(PathfinderType.JUNCTION);
+    }
+    
+    @Test
+    void gridSearchesTakeShortestSteps() {
+        for (PathfinderType type : new PathfinderType[] {PathfinderType.BFS, PathfinderType.BIT_BFS,
+                PathfinderType.A_STAR, PathfinderType.JUMP_POINT}) {
+            checkAllMazes(type);
+        }
+    }
+    
+    // Far apart, the hierarchical pathfinder only promises a good way, not a shortest one
+    @Test
+    void hierarchicalTakesShortestStepsUpClose() {
+        check(PathfinderType.HIERARCHICAL, Game.newStandardMaze(), false);
+        check(PathfinderType.HIERARCHICAL, new MazeGenerator(101, 101).generate(1), false);
+        check(PathfinderType.HIERARCHICAL, new MazeGenerator(201, 151).generate(2), false);
+        
+        // Far apart the route over the cluster graph need not be a shortest one, but it has to be there
+        Maze large = new MazeGenerator(601, 501).generate(3);
+        Pathfinder pathfinder = large.getPathfinder(PathfinderType.HIERARCHICAL);
+        Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            int[] from = openCell(large, random);
+            int[] to = openCell(large, random);
+            Direction step = pathfinder.firstStep(from[0], from[1], to[0], to[1]);
+            String pair = "HIERARCHICAL on 601x501 from " + Arrays.toString(from) + " to " + Arrays.toString(to);
+            if (distancesTo(large, to[0], to[1])[from[0] + from[1] * large.getWidth()] <= 0) {
+                assertEquals(Direction.NONE, step, pair);
+            } else {
+                assertNotEquals(Direction.NONE, step, pair);
+                assertTrue((large.openNeighbors(from[0], from[1]) & (1 << step.ordinal())) != 0, pair);
+            }
+        }
+    }
+    
+    // Ghosts keep their D* Lite planners and the shared flow fields from tick to tick while Pac-Man runs and
+    // doors flip, so follow one ghost chasing a wandering target rather than asking about unrelated pairs
+    @Test
+    void plannersTakeShortestStepsWhileTargetMoves() {
+        // The last is wider and taller than a planner's window, so far pairs are handed to the grid search
+        for (Maze maze : new Maze[] {Game.newStandardMaze(), new MazeGenerator(101, 101).generate(1),
+                new MazeGenerator(120, 90).generate(4), new MazeGenerator(301, 251).generate(2)}) {
+            chase(maze, new DStarLite(maze)::nextStep, "INCREMENTAL");
+            chase(maze, new FlowField(maze)::nextStep, "FLOW_FIELD");
+        }
+    }
+    
+    // Each ghost searches with its type's backend until there are so many that the game shares flow fields
+    @Test
+    void ghostsSearchWithTheirTypesBackendUntilFieldsAreShared() {
+        for (Ghost ghost : new Game(new MazeGenerator(101, 101).generate(1), 1, 1, 4).getGhosts()) {
+            assertEquals(ghost.getType().getPathfinderType(), ghost.getPathfinderType());
+        }
+        for (Ghost ghost : new Game(new MazeGenerator(101, 101).generate(1), 1, 1, 17).getGhosts()) {
+            assertEquals(PathfinderType.FLOW_FIELD, ghost.getPathfinderType());
+        }
+    }
+    
+    private interface Planner {
+        Direction nextStep(int x, int y, int toX, int toY);
+    }
+    
+    private static void chase(Maze maze, Planner planner, String what) {
+        Random random = new Random(9);
+        int[] ghost = openCell(maze, random);
+        int[] target = openCell(maze, random);
+        for (int tick = 0; tick < 3000; tick++) {
+            // The target wanders off a step most ticks, and now and then a wall goes up away from both
+            if (random.nextInt(4) > 0) {
+                wander(maze, random, target);
+            }
+            if (tick % 10 == 0) {
+                int[] cell = openCell(maze, random);
+                if (!Arrays.equals(cell, ghost) && !Arrays.equals(cell, target)) {
+                    maze.setWall(cell[0], cell[1], true);
+                }
+            }
+            Direction step = planner.nextStep(ghost[0], ghost[1], target[0], target[1]);
+            assertShortestStep(maze, ghost, target, step, what + " on " + maze.getWidth() + "x" + maze.getHeight()
+                    + " tick " + tick);
+            if (step == Direction.NONE) {
+                target = openCell(maze, random); // Caught it, or walled off
+                continue;
+            }
+            ghost[0] = maze.wrapX(ghost[0] + Grid.DX[step.ordinal()]);
+            ghost[1] += Grid.DY[step.ordinal()];
+        }
+    }
+    
+    private static void wander(Maze maze, Random random, int[] cell) {
+        int open = maze.openNeighbors(cell[0], cell[1]);
+        if (open == 0) {
+            return;
+        }
+        int d;
+        do {
+            d = random.nextInt(4);
+        } while ((open & (1 << d)) == 0);
+        cell[0] = maze.wrapX(cell[0] + Grid.DX[d]);
+        cell[1] += Grid.DY[d];
+    }
+    
+    // The cluster graph follows wall changes cell by cell; it has to agree with one built from scratch
+    @Test
+    void clusterGraphFollowsWallChanges() {
+        Maze maze = new MazeGenerator(201, 151).generate(3);
+        maze.setTunnelsWrap(true);
+        ClusterGraph updated = new ClusterGraph(maze);
+        Random random = new Random(5);
+        for (int round = 0; round < 40; round++) {
+            for (int i = 1 + random.nextInt(8); i > 0; i--) {
+                int x = random.nextInt(maze.getWidth());
+                int y = random.nextInt(maze.getHeight());
+                // Cluster borders are where entrances come and go
+                if (random.nextBoolean()) {
+                    x = Math.min(maze.getWidth() - 1, x / ClusterGraph.CLUSTER_SIZE * ClusterGraph.CLUSTER_SIZE
+                            + (random.nextBoolean() ? 0 : ClusterGraph.CLUSTER_SIZE - 1));
+                }
+                maze.setWall(x, y, !maze.isWall(x, y));
+            }
+            assertTrue(updated.catchUp(), "round " + round);
+            assertSameGraph(new ClusterGraph(maze), updated, maze, "round " + round);
+        }
+        
+        // More changes than the maze remembers can't be followed
+        for (int i = 0; i < 100; i++) {
+            maze.setWall(i, 1, !maze.isWall(i, 1));
+        }
+        assertFalse(updated.catchUp());
+    }
+    
+    private static void assertSameGraph(ClusterGraph expected, ClusterGraph actual, Maze maze, String what) {
+        int clusters = expected.clusterOf(maze.getWidth() * maze.getHeight() - 1) + 1;
+        int[] expectedNodes = new int[ClusterGraph.SLOTS];
+        int[] actualNodes = new int[ClusterGraph.SLOTS];
+        for (int cluster = 0; cluster < clusters; cluster++) {
+            int count = expected.getClusterNodes(cluster, expectedNodes);
+            assertEquals(count, actual.getClusterNodes(cluster, actualNodes), what + " cluster " + cluster);
+            for (int i = 0; i < count; i++) {
+                assertEquals(expected.getNodeCell(expectedNodes[i]), actual.getNodeCell(actualNodes[i]),
+                        what + " cluster " + cluster);
+                for (int j = 0; j < count; j++) {
+                    int from = expected.getSlot(expectedNodes[i]);
+                    int to = expected.getSlot(expectedNodes[j]);
+                    assertEquals(expected.getCost(cluster, from, to), actual.getCost(cluster, from, to),
+                            what + " cluster " + cluster);
+                }
+            }
+        }
+    }
+    
+    private static void checkAllMazes(PathfinderType type) {
+        check(type, Game.newStandardMaze(), false);
+        check(type, new MazeGenerator(101, 101).generate(1), false);
+        check(type, new MazeGenerator(201, 151).generate(2), false);
+        check(type, new MazeGenerator(201, 151).generate(2), true);
+    }
+    
+    // Near pairs, then as many anywhere in the maze
+    private static void check(PathfinderType type, Maze maze, boolean far) {
+        Pathfinder pathfinder = maze.getPathfinder(type);
+        Random random = new Random(42);
+        for (int i = 0; i < PAIRS; i++) {
+            int[] from = openCell(maze, random);
+            int[] to = far ? openCell(maze, random) : openCellNear(maze, random, from);
+            Direction step = pathfinder.firstStep(from[0], from[1], to[0], to[1]);
+            assertShortestStep(maze, from, to, step, type + " on " + maze.getWidth() + "x" + maze.getHeight());
+        }
+    }
+    
+    static void assertShortestStep(Maze maze, int[] from, int[] to, Direction step, String what) {
+        int[] distances = distancesTo(maze, to[0], to[1]);
+        int distance = distances[from[0] + from[1] * maze.getWidth()];
+        String pair = what + " from " + Arrays.toString(from) + " to " + Arrays.toString(to);
+        if (distance <= 0) {
+            assertEquals(Direction.NONE, step, pair);
+            return;
+        }
+        assertNotEquals(Direction.NONE, step, pair);
+        int d = step.ordinal();
+        int x = maze.wrapX(from[0] + Grid.DX[d]);
+        int y = from[1] + Grid.DY[d];
+        assertTrue((maze.openNeighbors(from[0], from[1]) & (1 << d)) != 0, pair + " steps into a wall");
+        assertEquals(distance - 1, distances[x + y * maze.getWidth()], pair + " step " + step + " is not shortest");
+    }
+    
+    // Steps from every cell to the target over the whole maze, -1 where it can't be reached
+    static int[] distancesTo(Maze maze, int toX, int toY) {
+        int width = maze.getWidth();
+        int[] distances = new int[width * maze.getHeight()];
+        Arrays.fill(distances, -1);
+        int[] queue = new int[distances.length];
+        int head = 0;
+        int tail = 0;
+        distances[toX + toY * width] = 0;
+        queue[tail++] = toX + toY * width;
+        while (head < tail) {
+            int cell = queue[head++];
+            int open = maze.openNeighbors(cell % width, cell / width);
+            for (int d = 0; d < 4; d++) {
+                if ((open & (1 << d)) == 0) {
+                    continue;
+                }
+                int next = maze.wrapX(cell % width + Grid.DX[d]) + (cell / width + Grid.DY[d]) * width;
+                if (distances[next] < 0) {
+                    distances[next] = distances[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return distances;
+    }
+    
+    static int[] openCell(Maze maze, Random random) {
+        while (true) {
+            int x = random.nextInt(maze.getWidth());
+            int y = random.nextInt(maze.getHeight());
+            if (!maze.isWall(x, y)) {
+                return new int[] {x, y};
+            }
+        }
+    }
+    
+    static int[] openCellNear(Maze maze, Random random, int[] from) {
+        while (true) {
+            int x = from[0] + random.nextInt(2 * NEAR + 1) - NEAR;
+            int y = from[1] + random.nextInt(2 * NEAR + 1) - NEAR;
+            if (x >= 0 && x < maze.getWidth() && y >= 0 && y < maze.getHeight() && !maze.isWall(x, y)) {
+                return new int[] {x, y};
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package pacman;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+// Replays and copied games must play out exactly like the game they came from, tick for tick
+class ReplayTest {
+    private static final int MAX_TICKS = 20_000;
+    
+    @Test
+    void replayMatchesRecordedGameEveryTick() throws IOException {
+        long seed = 7;
+        Game game = new Game(Game.newStandardMaze(), seed);
+        RandomWalkController controller = new RandomWalkController(seed);
+        Recording recording = new Recording(seed);
+        List<String> states = new ArrayList<>();
+        states.add(state(game));
+        while (!game.isFinished() && game.getTick() < MAX_TICKS) {
+            Direction input = controller.nextInput(game);
+            game.step(input);
+            recording.record(game.getTick(), input);
+            states.add(state(game));
+        }
+        
+        ReplayPlayer player = new ReplayPlayer(Recording.fromBytes(recording.toBytes()), Game.newStandardMaze());
+        for (int tick = 0; tick < states.size(); tick++) {
+            assertEquals(states.get(tick), state(player.getGame()), "tick " + tick);
+            player.step();
+        }
+        assertTrue(player.isFinished());
+        
+        // Seeking restores a keyframe and steps from there, which must land in the same state
+        int middle = states.size() / 2 + 17;
+        player.seek(middle);
+        assertEquals(states.get(middle), state(player.getGame()));
+    }
+    
+    @Test
+    void recordingsOfAnOlderSimulationAreRefused() throws IOException {
+        Recording current = Recording.fromBytes(new Recording(5).toBytes());
+        assertEquals(Game.SIMULATION_VERSION, current.getSimulationVersion());
+        
+        // A version 1 file: magic, version, seed, then no inputs and no ticks
+        ByteBuffer old = ByteBuffer.allocate(18);
+        old.putInt(0x504D5243).putInt(1).putLong(5).put((byte) 0).put((byte) 0);
+        Recording recording = Recording.fromBytes(old.array());
+        assertEquals(1, recording.getSimulationVersion());
+        assertThrows(IllegalArgumentException.class, () -> new ReplayPlayer(recording, Game.newStandardMaze()));
+    }
+    
+    @Test
+    void copiedGamesPlayOnLikeTheOriginal() {
+        for (PathfinderType type : PathfinderType.values()) {
+            Maze maze = new MazeGenerator(96, 80).generate(3);
+            maze.setPathOracleEnabled(false);
+            Game game = new Game(maze, 11, 1, 8);
+            game.setGhostPathfinder(type);
+            RandomWalkController controller = new RandomWalkController(11);
+            for (int i = 0; i < 300 && !game.isFinished(); i++) {
+                game.step(controller.nextInput(game));
+            }
+            
+            Game copy = new Game(game);
+            for (int i = 0; i < 600 && !game.isFinished(); i++) {
+                Direction input = controller.nextInput(game);
+                game.step(input);
+                copy.step(input);
+                assertEquals(state(game), state(copy), type + " at tick " + game.getTick());
+            }
+        }
+    }
+    
+    private static String state(Game game) {
+        StringBuilder state = new StringBuilder();
+        state.append(game.getTick()).append(' ').append(game.getScore()).append(' ').append(game.getLives());
+        for (PacMan pacMan : game.getPacMen()) {
+            state.append(" P").append(pacMan.getX()).append(',').append(pacMan.getY());
+        }
+        for (Ghost ghost : game.getGhosts()) {
+            state.append(" G").append(ghost.getX()).append(',').append(ghost.getY());
+        }
+        return state.toString();
+    }
+}
@@ -0,0 +1,125 @@
+package pacman.score;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+// The leaderboard has to come back intact after a crash mid-append and after compacting its log
+class LeaderboardTest {
+    @TempDir
+    Path directory;
+    
+    @Test
+    void tornTailIsDroppedAndLaterEntriesStillSave() throws IOException {
+        Path file = directory.resolve("board.dat");
+        Leaderboard board = Leaderboard.open(file, 10);
+        board.submit(entry("a", 300));
+        board.submit(entry("b", 200));
+        board.flush().join();
+        board.close();
+        
+        // Half a record, as a crash during an append leaves it
+        long intact = Files.size(file);
+        Files.write(file, new byte[] {0, 0, 0, 40, 1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+        
+        board = Leaderboard.open(file, 10);
+        assertEquals(List.of(300, 200), scores(board));
+        board.submit(entry("c", 250));
+        board.flush().join();
+        board.close();
+        assertTrue(Files.size(file) > intact);
+        
+        assertEquals(List.of(300, 250, 200), scores(Leaderboard.open(file, 10)));
+    }
+    
+    @Test
+    void corruptRecordEndsTheLog() throws IOException {
+        Path file = directory.resolve("board.dat");
+        Leaderboard board = Leaderboard.open(file, 10);
+        board.submit(entry("a", 300));
+        board.flush().join();
+        board.submit(entry("b", 200));
+        board.close();
+        
+        // Flip a byte in the last record's payload so its checksum fails
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(file, bytes);
+        assertEquals(List.of(300), scores(Leaderboard.open(file, 10)));
+    }
+    
+    @Test
+    void recordWhoseLengthsDontAddUpIsSkipped() throws IOException {
+        Path file = directory.resolve("board.dat");
+        Leaderboard board = Leaderboard.open(file, 10);
+        board.submit(entry("a", 300));
+        board.close();
+        Path other = directory.resolve("other.dat");
+        board = Leaderboard.open(other, 10);
+        board.submit(entry("b", 200));
+        board.close();
+        byte[] good = Files.readAllBytes(other);
+        
+        // Checksums that pass over payloads too short for an entry, and with a name running past the end
+        ByteBuffer longName = ByteBuffer.allocate(8 + 8 + 4 + 4 + 8 + 2 + 3);
+        longName.position(8 + 8 + 4 + 4 + 8);
+        longName.putShort((short) 40);
+        Files.write(file, record(new byte[10]), StandardOpenOption.APPEND);
+        Files.write(file, record(longName.array()), StandardOpenOption.APPEND);
+        Files.write(file, Arrays.copyOfRange(good, 8, good.length), StandardOpenOption.APPEND);
+        
+        assertEquals(List.of(300, 200), scores(Leaderboard.open(file, 10)));
+    }
+    
+    @Test
+    void longNamesAreCutOnACharacterBoundary() throws IOException {
+        Path file = directory.resolve("board.dat");
+        Leaderboard board = Leaderboard.open(file, 10);
+        board.submit(entry("\u00e9".repeat(40), 300)); // Two bytes each in UTF-8
+        board.close();
+        
+        assertEquals("\u00e9".repeat(32), Leaderboard.open(file, 10).getEntries().get(0).getName());
+    }
+    
+    @Test
+    void compactionKeepsTheBoardAndLeavesNoTempFiles() throws IOException {
+        Path file = directory.resolve("board.dat");
+        Leaderboard board = Leaderboard.open(file, 3);
+        for (int i = 1; i <= 40; i++) {
+            board.submit(entry("p" + i, i * 10));
+        }
+        board.close();
+        
+        assertEquals(List.of(400, 390, 380), scores(Leaderboard.open(file, 3)));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(List.of(file), files.toList());
+        }
+    }
+    
+    private static LeaderboardEntry entry(String name, int score) {
+        return new LeaderboardEntry(name, score, 1, 1000, 42, score);
+    }
+    
+    // Length, CRC32 and payload, as the log frames each entry
+    private static byte[] record(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return ByteBuffer.allocate(8 + payload.length).putInt(payload.length).putInt((int) crc.getValue())
+                .put(payload).array();
+    }
+    
+    private static List<Integer> scores(Leaderboard board) {
+        return board.getEntries().stream().map(LeaderboardEntry::getScore).toList();
+    }
+}